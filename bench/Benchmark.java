@@ -0,0 +1,512 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import graph.ContractionHierarchy;
+import graph.DistanceMatrix;
+import graph.Distancer;
+import graph.Graph;
+import graph.Graphs;
+import graph.HopSearch;
+import graph.Landmarks;
+import graph.MultiSourceSearch;
+import graph.PathSearch;
+import graph.ShortestPathTree;
+import graph.Traversal;
+import graph.TraversalOrder;
+import graph.Weighter;
+import graph.Weighting;
+
+import bench.Generator.Link;
+import bench.Generator.Node;
+
+/** A single benchmarked operation on a generated graph.  The harness
+ *  calls setup once for each graph family and size, and then calls op
+ *  repeatedly, timing it.
+ *  @author Scott Lee
+ */
+abstract class Benchmark {
+
+    /** A benchmark named NAME. */
+    Benchmark(String name) {
+        _name = name;
+    }
+
+    /** Returns my name. */
+    String name() {
+        return _name;
+    }
+
+    /** Prepare to run on a graph of about N vertices produced by GEN.  If
+     *  FREEZE, queries (but not updates) run on a frozen copy of it. */
+    void setup(Generator gen, int n, boolean freeze) {
+        _gen = gen;
+        _n = n;
+        _rand = new Random(SEED);
+        _graph = gen.generate(n, new Random(SEED));
+        _vertices = new ArrayList<Graph<Node, Link>.Vertex>();
+        for (Graph<Node, Link>.Vertex v : _graph.vertices()) {
+            _vertices.add(v);
+        }
+        _query = freeze ? _graph.freeze() : _graph;
+    }
+
+    /** Perform one operation, returning a value computed from its result
+     *  so that the work cannot be optimized away. */
+    abstract long op();
+
+    /** Returns a random vertex of the graph. */
+    Graph<Node, Link>.Vertex randomVertex() {
+        return _vertices.get(_rand.nextInt(_vertices.size()));
+    }
+
+    /** Seed for all random choices, so that runs are repeatable. */
+    static final long SEED = 61;
+
+    /** A distance estimate for shortest paths: the straight-line distance
+     *  between nodes, which is never more than the weight of a link. */
+    static final Distancer<Node> STRAIGHT = new Distancer<Node>() {
+        @Override
+        public double dist(Node v0, Node v1) {
+            return v0.dist(v1);
+        }
+    };
+
+    /** Sets and reads vertex weights for the Weighter overload of
+     *  shortestPath. */
+    static final Weighter<Node> NODE_WEIGHTS = new Weighter<Node>() {
+        @Override
+        public double weight(Node x) {
+            return x.weight();
+        }
+
+        @Override
+        public void setWeight(Node x, double v) {
+            x.setWeight(v);
+        }
+    };
+
+    /** Reads edge weights for the Weighting overload of shortestPath. */
+    static final Weighting<Link> LINK_WEIGHTS = new Weighting<Link>() {
+        @Override
+        public double weight(Link x) {
+            return x.weight();
+        }
+    };
+
+    /** The origin of the plane in which nodes lie. */
+    static final Node ORIGIN = new Node(0.0, 0.0);
+
+    /** Orders nodes by distance from ORIGIN. */
+    static final Comparator<Node> NEAREST_FIRST = new Comparator<Node>() {
+        @Override
+        public int compare(Node v0, Node v1) {
+            return Double.compare(v0.dist(ORIGIN), v1.dist(ORIGIN));
+        }
+    };
+
+    /** Gives the distance of nodes from ORIGIN. */
+    static final Weighting<Node> NEAREST_KEY = new Weighting<Node>() {
+        @Override
+        public double weight(Node x) {
+            return x.dist(ORIGIN);
+        }
+    };
+
+    /** A traversal that counts the vertices it visits. */
+    static class Counter extends Traversal<Node, Link> {
+        @Override
+        protected void visit(Graph<Node, Link>.Vertex v) {
+            _count += 1;
+        }
+
+        /** Number of visits so far. */
+        private long _count;
+    }
+
+    /** Building a whole graph with Graph.add. */
+    static final Benchmark ADD = new Benchmark("graph.add") {
+        @Override
+        long op() {
+            return _gen.generate(_n, _rand).edgeSize();
+        }
+    };
+
+    /** Removing a random edge and adding it back. */
+    static final Benchmark REMOVE = new Benchmark("graph.remove") {
+        @Override
+        void setup(Generator gen, int n, boolean freeze) {
+            super.setup(gen, n, freeze);
+            _edges = new ArrayList<Graph<Node, Link>.Edge>();
+            for (Graph<Node, Link>.Edge e : _graph.edges()) {
+                _edges.add(e);
+            }
+        }
+
+        @Override
+        long op() {
+            int k = _rand.nextInt(_edges.size());
+            Graph<Node, Link>.Edge e = _edges.get(k);
+            _graph.remove(e);
+            _edges.set(k, _graph.add(e.getV0(), e.getV1(), e.getLabel()));
+            return k;
+        }
+
+        /** The current edges of the graph. */
+        private List<Graph<Node, Link>.Edge> _edges;
+    };
+
+    /** Graph.contains on a random pair of vertices. */
+    static final Benchmark CONTAINS = new Benchmark("graph.contains") {
+        @Override
+        long op() {
+            return _query.contains(randomVertex(), randomVertex()) ? 1 : 0;
+        }
+    };
+
+    /** Iterating over the successors of a random vertex. */
+    static final Benchmark SUCCESSORS = new Benchmark("graph.successors") {
+        @Override
+        long op() {
+            long n = 0;
+            for (Graph<Node, Link>.Vertex v
+                     : _query.successors(randomVertex())) {
+                n += 1;
+            }
+            return n;
+        }
+    };
+
+    /** A complete breadth-first traversal from a random vertex. */
+    static final Benchmark BFS = new Benchmark("traversal.bfs") {
+        @Override
+        long op() {
+            _counter.breadthFirstTraverse(_query, randomVertex());
+            return _counter._count;
+        }
+
+        /** The traversal, reused for each operation. */
+        private Counter _counter = new Counter();
+    };
+
+    /** A complete parallel breadth-first traversal from a random
+     *  vertex. */
+    static final Benchmark PARALLEL_BFS =
+        new Benchmark("traversal.bfs.parallel") {
+        @Override
+        long op() {
+            _counter.parallelBreadthFirstTraverse(_query, randomVertex());
+            return _counter.hops(randomVertex());
+        }
+
+        /** The traversal, reused for each operation. */
+        private Traversal<Node, Link> _counter = new Traversal<Node, Link>();
+    };
+
+    /** A complete direction-optimizing breadth-first traversal from a
+     *  random vertex. */
+    static final Benchmark HYBRID_BFS =
+        new Benchmark("traversal.bfs.hybrid") {
+        @Override
+        long op() {
+            _counter.directionOptimizingTraverse(_query, randomVertex());
+            return _counter.hops(randomVertex());
+        }
+
+        /** The traversal, reused for each operation. */
+        private Traversal<Node, Link> _counter = new Traversal<Node, Link>();
+    };
+
+    /** Breadth-first searches from 64 random vertices at once. */
+    static final Benchmark MULTI_BFS =
+        new Benchmark("traversal.bfs.multi64") {
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Vertex> sources =
+                new ArrayList<Graph<Node, Link>.Vertex>();
+            for (int k = 0; k < 64; k += 1) {
+                sources.add(randomVertex());
+            }
+            MultiSourceSearch<Node, Link> search =
+                new MultiSourceSearch<Node, Link>(_query);
+            search.search(sources, false);
+            return search.reaches(0, randomVertex()) ? 1 : 0;
+        }
+    };
+
+    /** The first 100 vertices in breadth-first order from a random
+     *  vertex. */
+    static final Benchmark FIRST_100 =
+        new Benchmark("traversal.stream.first100") {
+        @Override
+        long op() {
+            return TraversalOrder.breadthFirstStream(_query, randomVertex())
+                .limit(100).count();
+        }
+    };
+
+    /** A complete traversal from a random vertex in order of distance
+     *  from the origin, given by a Comparator. */
+    static final Benchmark ORDERED =
+        new Benchmark("traversal.ordered.comparator") {
+        @Override
+        long op() {
+            _counter.traverse(_query, randomVertex(), NEAREST_FIRST);
+            return _counter._count;
+        }
+
+        /** The traversal, reused for each operation. */
+        private Counter _counter = new Counter();
+    };
+
+    /** A complete traversal from a random vertex in order of distance
+     *  from the origin, given by a numeric key. */
+    static final Benchmark KEYED =
+        new Benchmark("traversal.ordered.key") {
+        @Override
+        long op() {
+            _counter.traverse(_query, randomVertex(), NEAREST_KEY);
+            return _counter._count;
+        }
+
+        /** The traversal, reused for each operation. */
+        private Counter _counter = new Counter();
+    };
+
+    /** A complete depth-first traversal from a random vertex. */
+    static final Benchmark DFS = new Benchmark("traversal.dfs") {
+        @Override
+        long op() {
+            _counter.depthFirstTraverse(_query, randomVertex());
+            return _counter._count;
+        }
+
+        /** The traversal, reused for each operation. */
+        private Counter _counter = new Counter();
+    };
+
+    /** Graphs.shortestPath with a Weighter and Weighting between random
+     *  vertices. */
+    static final Benchmark ASTAR = new Benchmark("graphs.shortestPath") {
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Edge> path =
+                Graphs.shortestPath(_query, randomVertex(), randomVertex(),
+                                    STRAIGHT, NODE_WEIGHTS, LINK_WEIGHTS);
+            return path == null ? -1 : path.size();
+        }
+    };
+
+    /** Graphs.shortestPath on Weightable and Weighted labels between random
+     *  vertices. */
+    static final Benchmark ASTAR_LABELS =
+        new Benchmark("graphs.shortestPath.labels") {
+            @Override
+            long op() {
+                List<Graph<Node, Link>.Edge> path =
+                    Graphs.shortestPath(_query, randomVertex(),
+                                        randomVertex(), STRAIGHT);
+                return path == null ? -1 : path.size();
+            }
+        };
+
+    /** PathSearch.shortestPath between random vertices, reusing one
+     *  PathSearch. */
+    static final Benchmark PATH_SEARCH = new Benchmark("pathsearch") {
+        @Override
+        void setup(Generator gen, int n, boolean freeze) {
+            super.setup(gen, n, freeze);
+            _search = new PathSearch<Node, Link>(_query, LINK_WEIGHTS);
+        }
+
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Edge> path =
+                _search.shortestPath(randomVertex(), randomVertex(),
+                                     STRAIGHT);
+            return path == null ? -1 : path.size();
+        }
+
+        /** The search, reused for each operation. */
+        private PathSearch<Node, Link> _search;
+    };
+
+    /** PathSearch.shortestPath between random vertices, guided by eight
+     *  landmarks chosen during setup. */
+    static final Benchmark ALT = new Benchmark("pathsearch.alt") {
+        @Override
+        void setup(Generator gen, int n, boolean freeze) {
+            super.setup(gen, n, freeze);
+            _search = new PathSearch<Node, Link>(_query, LINK_WEIGHTS);
+            _landmarks = new Landmarks<Node, Link>(_query, LINK_WEIGHTS, 8);
+        }
+
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Edge> path =
+                _search.shortestPath(randomVertex(), randomVertex(),
+                                     _landmarks);
+            return path == null ? -1 : path.size();
+        }
+
+        /** The search, reused for each operation. */
+        private PathSearch<Node, Link> _search;
+        /** The heuristic, built once for each graph. */
+        private Landmarks<Node, Link> _landmarks;
+    };
+
+    /** PathSearch.bidirectionalShortestPath between random vertices,
+     *  reusing one PathSearch. */
+    static final Benchmark BIDIRECTIONAL =
+        new Benchmark("pathsearch.bidirectional") {
+        @Override
+        void setup(Generator gen, int n, boolean freeze) {
+            super.setup(gen, n, freeze);
+            _search = new PathSearch<Node, Link>(_query, LINK_WEIGHTS);
+        }
+
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Edge> path =
+                _search.bidirectionalShortestPath(randomVertex(),
+                                                  randomVertex(), STRAIGHT);
+            return path == null ? -1 : path.size();
+        }
+
+        /** The search, reused for each operation. */
+        private PathSearch<Node, Link> _search;
+    };
+
+    /** Paths from a random vertex to 100 random vertices read from one
+     *  shortest-path tree, reusing one PathSearch. */
+    static final Benchmark PATH_TREE = new Benchmark("pathsearch.tree100") {
+        @Override
+        void setup(Generator gen, int n, boolean freeze) {
+            super.setup(gen, n, freeze);
+            _search = new PathSearch<Node, Link>(_query, LINK_WEIGHTS);
+        }
+
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Vertex> stops =
+                new ArrayList<Graph<Node, Link>.Vertex>();
+            for (int k = 0; k < 100; k += 1) {
+                stops.add(randomVertex());
+            }
+            ShortestPathTree<Node, Link> tree =
+                _search.shortestPathTree(randomVertex(), stops);
+            long total = 0;
+            for (Graph<Node, Link>.Vertex v : stops) {
+                List<Graph<Node, Link>.Edge> path = tree.path(v);
+                total += path == null ? -1 : path.size();
+            }
+            return total;
+        }
+
+        /** The search, reused for each operation. */
+        private PathSearch<Node, Link> _search;
+    };
+
+    /** Graphs.distanceMatrix from 20 random vertices to 20 others, in the
+     *  common fork-join pool. */
+    static final Benchmark MATRIX = new Benchmark("graphs.distanceMatrix") {
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Vertex> sources =
+                new ArrayList<Graph<Node, Link>.Vertex>(),
+                targets = new ArrayList<Graph<Node, Link>.Vertex>();
+            for (int k = 0; k < 20; k += 1) {
+                sources.add(randomVertex());
+                targets.add(randomVertex());
+            }
+            DistanceMatrix<Node, Link> matrix =
+                Graphs.distanceMatrix(_query, sources, targets, LINK_WEIGHTS);
+            long total = 0;
+            for (int i = 0; i < 20; i += 1) {
+                for (int j = 0; j < 20; j += 1) {
+                    total += (long) Math.min(matrix.distance(i, j), 1e9);
+                }
+            }
+            return total;
+        }
+    };
+
+    /** ContractionHierarchy.shortestPath between random vertices, on a
+     *  hierarchy built during setup. */
+    static final Benchmark CH_QUERY = new Benchmark("ch.query") {
+        @Override
+        void setup(Generator gen, int n, boolean freeze) {
+            super.setup(gen, n, freeze);
+            _hierarchy =
+                new ContractionHierarchy<Node, Link>(_query, LINK_WEIGHTS);
+        }
+
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Edge> path =
+                _hierarchy.shortestPath(randomVertex(), randomVertex());
+            return path == null ? -1 : path.size();
+        }
+
+        /** The hierarchy, built once for each graph. */
+        private ContractionHierarchy<Node, Link> _hierarchy;
+    };
+
+    /** HopSearch.hopPath between random vertices, reusing one
+     *  HopSearch. */
+    static final Benchmark HOP_PATH = new Benchmark("hopsearch") {
+        @Override
+        void setup(Generator gen, int n, boolean freeze) {
+            super.setup(gen, n, freeze);
+            _search = new HopSearch<Node, Link>(_query);
+        }
+
+        @Override
+        long op() {
+            List<Graph<Node, Link>.Edge> path =
+                _search.hopPath(randomVertex(), randomVertex());
+            return path == null ? -1 : path.size();
+        }
+
+        /** The search, reused for each operation. */
+        private HopSearch<Node, Link> _search;
+    };
+
+    /** Graphs.topologicalLevels over the whole graph. */
+    static final Benchmark TOPOLOGICAL =
+        new Benchmark("graphs.topologicalLevels") {
+        @Override
+        long op() {
+            List<List<Graph<Node, Link>.Vertex>> levels =
+                Graphs.topologicalLevels(_query);
+            return levels == null ? -1 : levels.size();
+        }
+    };
+
+    /** All benchmarks. */
+    static final Benchmark[] ALL = {
+        ADD, REMOVE, CONTAINS, SUCCESSORS, BFS, PARALLEL_BFS, HYBRID_BFS,
+        MULTI_BFS, FIRST_100, DFS, ORDERED, KEYED, ASTAR, ASTAR_LABELS,
+        PATH_SEARCH, ALT, BIDIRECTIONAL, PATH_TREE, MATRIX, CH_QUERY,
+        HOP_PATH, TOPOLOGICAL
+    };
+
+    /** The generator and size of the current graph. */
+    protected Generator _gen;
+    /** The requested size of the current graph. */
+    protected int _n;
+    /** Source of random choices. */
+    protected Random _rand;
+    /** The current graph. */
+    protected Graph<Node, Link> _graph;
+    /** The graph to query: _GRAPH or a frozen copy of it. */
+    protected Graph<Node, Link> _query;
+    /** The vertices of _GRAPH. */
+    protected List<Graph<Node, Link>.Vertex> _vertices;
+
+    /** My name. */
+    private final String _name;
+}
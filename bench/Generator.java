@@ -0,0 +1,226 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import graph.DirectedGraph;
+import graph.Graph;
+import graph.UndirectedGraph;
+import graph.Weightable;
+import graph.Weighted;
+
+/** Synthetic graph families used by the benchmarks.  Every generator is
+ *  deterministic for a given size and seed.
+ *  @author Scott Lee
+ */
+abstract class Generator {
+
+    /** A point in the plane with a settable weight, used as a vertex
+     *  label. */
+    static class Node implements Weightable {
+        /** A node at (X, Y). */
+        Node(double x, double y) {
+            _x = x;
+            _y = y;
+        }
+
+        @Override
+        public double weight() {
+            return _weight;
+        }
+
+        @Override
+        public void setWeight(double w) {
+            _weight = w;
+        }
+
+        /** Returns the straight-line distance from me to OTHER. */
+        double dist(Node other) {
+            return Math.hypot(_x - other._x, _y - other._y);
+        }
+
+        /** My coordinates. */
+        private final double _x, _y;
+        /** My weight. */
+        private double _weight;
+    }
+
+    /** An edge label with a fixed weight. */
+    static class Link implements Weighted {
+        /** A link of weight W. */
+        Link(double w) {
+            _weight = w;
+        }
+
+        @Override
+        public double weight() {
+            return _weight;
+        }
+
+        /** My weight. */
+        private final double _weight;
+    }
+
+    /** A generator named NAME. */
+    Generator(String name) {
+        _name = name;
+    }
+
+    /** Returns my name. */
+    String name() {
+        return _name;
+    }
+
+    /** Returns a new graph of about N vertices, using RAND for any random
+     *  choices.  Its vertices are added in the order given by the
+     *  generator. */
+    abstract Graph<Node, Link> generate(int n, Random rand);
+
+    /** Add a link from U to V of G, weighted by the distance between them
+     *  scaled by a random factor from RAND between 1 and 1.5. */
+    static void link(Graph<Node, Link> g, Graph<Node, Link>.Vertex u,
+                     Graph<Node, Link>.Vertex v, Random rand) {
+        double d = u.getLabel().dist(v.getLabel());
+        g.add(u, v, new Link(d * (1.0 + 0.5 * rand.nextDouble())));
+    }
+
+    /** Add links in both directions between U and V of G, as for link,
+     *  unless V is null or they are already joined. */
+    static void join(Graph<Node, Link> g, Graph<Node, Link>.Vertex u,
+                     Graph<Node, Link>.Vertex v, Random rand) {
+        if (v != null && !g.contains(u, v)) {
+            link(g, u, v, rand);
+            link(g, v, u, rand);
+        }
+    }
+
+    /** An undirected square grid with unit spacing. */
+    static final Generator GRID = new Generator("grid") {
+        @Override
+        Graph<Node, Link> generate(int n, Random rand) {
+            int side = Math.max(1, (int) Math.round(Math.sqrt(n)));
+            Graph<Node, Link> g = new UndirectedGraph<Node, Link>();
+            List<Graph<Node, Link>.Vertex> vs =
+                new ArrayList<Graph<Node, Link>.Vertex>();
+            for (int i = 0; i < side * side; i += 1) {
+                vs.add(g.add(new Node(i % side, i / side)));
+            }
+            for (int i = 0; i < side * side; i += 1) {
+                if (i % side + 1 < side) {
+                    link(g, vs.get(i), vs.get(i + 1), rand);
+                }
+                if (i + side < side * side) {
+                    link(g, vs.get(i), vs.get(i + side), rand);
+                }
+            }
+            return g;
+        }
+    };
+
+    /** A directed graph whose edges join uniformly random pairs of
+     *  vertices, four per vertex on average. */
+    static final Generator SPARSE = new Generator("sparse") {
+        @Override
+        Graph<Node, Link> generate(int n, Random rand) {
+            Graph<Node, Link> g = new DirectedGraph<Node, Link>();
+            List<Graph<Node, Link>.Vertex> vs =
+                new ArrayList<Graph<Node, Link>.Vertex>();
+            for (int i = 0; i < n; i += 1) {
+                vs.add(g.add(new Node(rand.nextDouble(),
+                                      rand.nextDouble())));
+            }
+            for (int i = 0; i < 4 * n; i += 1) {
+                link(g, vs.get(rand.nextInt(n)), vs.get(rand.nextInt(n)),
+                     rand);
+            }
+            return g;
+        }
+    };
+
+    /** A road-like planar graph: random points in a square, each joined
+     *  in both directions to its nearest neighbors within its grid
+     *  cell and the cells around it. */
+    static final Generator ROAD = new Generator("road") {
+        @Override
+        Graph<Node, Link> generate(int n, Random rand) {
+            int side = Math.max(1, (int) Math.sqrt(n / 4.0));
+            Graph<Node, Link> g = new DirectedGraph<Node, Link>();
+            List<List<Graph<Node, Link>.Vertex>> cells =
+                new ArrayList<List<Graph<Node, Link>.Vertex>>();
+            for (int c = 0; c < side * side; c += 1) {
+                cells.add(new ArrayList<Graph<Node, Link>.Vertex>());
+            }
+            for (int i = 0; i < n; i += 1) {
+                double x = rand.nextDouble() * side,
+                    y = rand.nextDouble() * side;
+                cells.get((int) y * side + (int) x).add(
+                    g.add(new Node(x, y)));
+            }
+            for (int c = 0; c < side * side; c += 1) {
+                int cx = c % side, cy = c / side;
+                for (Graph<Node, Link>.Vertex u : cells.get(c)) {
+                    Graph<Node, Link>.Vertex best = null, next = null;
+                    double d0 = Double.POSITIVE_INFINITY, d1 = d0;
+                    for (int dy = -1; dy <= 1; dy += 1) {
+                        for (int dx = -1; dx <= 1; dx += 1) {
+                            int x = cx + dx, y = cy + dy;
+                            if (x < 0 || y < 0 || x >= side || y >= side) {
+                                continue;
+                            }
+                            for (Graph<Node, Link>.Vertex v
+                                     : cells.get(y * side + x)) {
+                                double d = u.getLabel().dist(v.getLabel());
+                                if (v == u || d >= d1) {
+                                    continue;
+                                } else if (d < d0) {
+                                    next = best;
+                                    d1 = d0;
+                                    best = v;
+                                    d0 = d;
+                                } else {
+                                    next = v;
+                                    d1 = d;
+                                }
+                            }
+                        }
+                    }
+                    join(g, u, best, rand);
+                    join(g, u, next, rand);
+                }
+            }
+            return g;
+        }
+    };
+
+    /** A deep directed acyclic graph: vertices in layers of eight, each
+     *  with edges to three random vertices of the next layer. */
+    static final Generator DAG = new Generator("dag") {
+        @Override
+        Graph<Node, Link> generate(int n, Random rand) {
+            int width = 8;
+            Graph<Node, Link> g = new DirectedGraph<Node, Link>();
+            List<Graph<Node, Link>.Vertex> vs =
+                new ArrayList<Graph<Node, Link>.Vertex>();
+            for (int i = 0; i < n; i += 1) {
+                vs.add(g.add(new Node(i % width, i / width)));
+            }
+            for (int i = 0; i + width < n; i += 1) {
+                int layer = (i / width + 1) * width;
+                for (int k = 0; k < 3; k += 1) {
+                    int j = layer + rand.nextInt(width);
+                    if (j < n) {
+                        link(g, vs.get(i), vs.get(j), rand);
+                    }
+                }
+            }
+            return g;
+        }
+    };
+
+    /** All generators. */
+    static final Generator[] ALL = { GRID, SPARSE, ROAD, DAG };
+
+    /** My name. */
+    private final String _name;
+}
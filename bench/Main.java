@@ -0,0 +1,212 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Benchmark harness for the graph package.  Each benchmark is run on
+ *  each requested graph family and size: first for several untimed
+ *  warmup iterations, to let the JIT compiler settle, and then for
+ *  several timed iterations.  For each combination it reports the mean
+ *  throughput in operations per second, its standard deviation across
+ *  iterations, and the number of bytes allocated per operation by all
+ *  threads, including those of any fork-join pool the operation uses.
+ *  @author Scott Lee
+ */
+public final class Main {
+
+    /** Entry point for the benchmarks.  ARGS may contain options and
+     *  benchmark names:
+     *      [ -g GRAPHS ] [ -n SIZES ] [ -w WARMUPS ] [ -i ITERATIONS ]
+     *      [ -t MILLIS ] [ -f ] [ BENCHMARK ... ]
+     *  where GRAPHS is a comma-separated list of graph families (default
+     *  all of grid, sparse, road and dag), SIZES a comma-separated list
+     *  of vertex counts (default 1000,10000,100000), WARMUPS and
+     *  ITERATIONS the numbers of warmup and timed iterations (default 3
+     *  and 5), MILLIS the length of each iteration (default 500), and -f
+     *  requests that queries run on frozen graphs.  Only benchmarks whose
+     *  names start with one of the BENCHMARKs are run (default all). */
+    public static void main(String... args) {
+        List<Generator> gens = new ArrayList<Generator>();
+        List<Integer> sizes = new ArrayList<Integer>();
+        List<String> names = new ArrayList<String>();
+        int warmups = 3, iterations = 5;
+        long millis = 500;
+        boolean freeze = false;
+
+        try {
+            for (int a = 0; a < args.length; a += 1) {
+                if (args[a].equals("-f")) {
+                    freeze = true;
+                } else if (args[a].startsWith("-") && a + 1 < args.length) {
+                    String opt = args[a];
+                    a += 1;
+                    if (opt.equals("-g")) {
+                        for (String name : args[a].split(",")) {
+                            gens.add(generator(name));
+                        }
+                    } else if (opt.equals("-n")) {
+                        for (String n : args[a].split(",")) {
+                            sizes.add(Integer.parseInt(n));
+                        }
+                    } else if (opt.equals("-w")) {
+                        warmups = Integer.parseInt(args[a]);
+                    } else if (opt.equals("-i")) {
+                        iterations = Integer.parseInt(args[a]);
+                    } else if (opt.equals("-t")) {
+                        millis = Long.parseLong(args[a]);
+                    } else {
+                        usage();
+                    }
+                } else if (args[a].startsWith("-")) {
+                    usage();
+                } else {
+                    names.add(args[a]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        if (gens.isEmpty()) {
+            for (Generator gen : Generator.ALL) {
+                gens.add(gen);
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(1000);
+            sizes.add(10000);
+            sizes.add(100000);
+        }
+        if (iterations < 1 || warmups < 0 || millis < 1) {
+            usage();
+        }
+
+        System.out.printf("%-28s %-7s %8s %14s %12s %12s%n", "Benchmark",
+                          "Graph", "Size", "ops/s", "stdev", "B/op");
+        for (Benchmark bench : Benchmark.ALL) {
+            if (!selected(bench, names)) {
+                continue;
+            }
+            for (Generator gen : gens) {
+                for (int n : sizes) {
+                    bench.setup(gen, n, freeze);
+                    run(bench, gen, n, warmups, iterations, millis);
+                }
+            }
+        }
+    }
+
+    /** Run BENCH, already set up for a graph of size N from GEN, for WARMUPS
+     *  untimed and ITERATIONS timed iterations of MILLIS milliseconds each,
+     *  and print the results. */
+    private static void run(Benchmark bench, Generator gen, int n,
+                            int warmups, int iterations, long millis) {
+        for (int i = 0; i < warmups; i += 1) {
+            iterate(bench, millis);
+        }
+        double[] rates = new double[iterations];
+        double sum = 0.0;
+        long ops = 0, bytes = 0;
+        for (int i = 0; i < iterations; i += 1) {
+            Map<Long, Long> bytes0 = allocated();
+            long start = System.nanoTime();
+            long count = iterate(bench, millis);
+            long time = System.nanoTime() - start;
+            bytes += allocatedSince(bytes0);
+            ops += count;
+            rates[i] = count * 1e9 / time;
+            sum += rates[i];
+        }
+        double mean = sum / iterations, var = 0.0;
+        for (double r : rates) {
+            var += (r - mean) * (r - mean);
+        }
+        double stdev = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+        System.out.printf("%-28s %-7s %8d %14.1f %12.1f %12.1f%n",
+                          bench.name(), gen.name(), n, mean, stdev,
+                          (double) bytes / ops);
+    }
+
+    /** Perform operations of BENCH for about MILLIS milliseconds.  Returns
+     *  the number performed. */
+    private static long iterate(Benchmark bench, long millis) {
+        long end = System.nanoTime() + millis * 1000000L;
+        long count = 0;
+        do {
+            _sink ^= bench.op();
+            count += 1;
+        } while (System.nanoTime() < end);
+        return count;
+    }
+
+    /** Returns the number of bytes allocated so far by each live thread,
+     *  indexed by thread id, or an empty map if the JVM cannot tell. */
+    private static Map<Long, Long> allocated() {
+        HashMap<Long, Long> result = new HashMap<Long, Long>();
+        java.lang.management.ThreadMXBean bean =
+            ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            long[] ids = bean.getAllThreadIds();
+            long[] bytes = ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i += 1) {
+                if (bytes[i] >= 0) {
+                    result.put(ids[i], bytes[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the number of bytes allocated by all threads since
+     *  BEFORE was taken by allocated().  Threads started since then count
+     *  in full; the allocations of threads that have ended since are
+     *  lost. */
+    private static long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : allocated().entrySet()) {
+            Long old = before.get(entry.getKey());
+            total += entry.getValue() - (old == null ? 0 : old);
+        }
+        return total;
+    }
+
+    /** Returns true iff BENCH's name starts with one of NAMES, or NAMES is
+     *  empty. */
+    private static boolean selected(Benchmark bench, List<String> names) {
+        if (names.isEmpty()) {
+            return true;
+        }
+        for (String name : names) {
+            if (bench.name().startsWith(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the generator named NAME. */
+    private static Generator generator(String name) {
+        for (Generator gen : Generator.ALL) {
+            if (gen.name().equals(name)) {
+                return gen;
+            }
+        }
+        usage();
+        return null;
+    }
+
+    /** Print a brief usage message and exit program abnormally. */
+    private static void usage() {
+        System.err.println("Usage: java bench.Main [ -g GRAPHS ] [ -n SIZES ]"
+                           + " [ -w WARMUPS ] [ -i ITERATIONS ] [ -t MILLIS ]"
+                           + " [ -f ] [ BENCHMARK ... ]");
+        System.exit(1);
+    }
+
+    /** Accumulates the results of operations, so that they are not
+     *  optimized away. */
+    private static long _sink;
+}
@@ -0,0 +1,92 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A set of vertices represented as a bit vector indexed by vertex id
+ *  (see Graph.Vertex.id()).  Membership tests and updates take constant
+ *  time and do no allocation once the set has grown to the size of the
+ *  graph, so a single set may be cleared and reused across many
+ *  searches.  A set should only hold vertices of one graph.
+ *  @author Scott Lee
+ */
+public class BitVertexSet {
+
+    /** An empty set. */
+    public BitVertexSet() {
+        this(0);
+    }
+
+    /** An empty set with room for vertices with ids less than N. */
+    public BitVertexSet(int n) {
+        _bits = new long[(n + 63) >>> 6];
+    }
+
+    /** An empty set with room for all vertices of G. */
+    public BitVertexSet(Graph<?, ?> g) {
+        this(g.vertexIdBound());
+    }
+
+    /** Returns true iff V is in me. */
+    public boolean contains(Graph<?, ?>.Vertex v) {
+        return contains(v.id());
+    }
+
+    /** Returns true iff the vertex with id ID is in me. */
+    public boolean contains(int id) {
+        int w = id >>> 6;
+        return w < _bits.length && (_bits[w] & (1L << id)) != 0;
+    }
+
+    /** Add V to me.  Returns true iff V was not already present. */
+    public boolean add(Graph<?, ?>.Vertex v) {
+        return add(v.id());
+    }
+
+    /** Add the vertex with id ID to me.  Returns true iff it was not
+     *  already present. */
+    public boolean add(int id) {
+        int w = id >>> 6;
+        if (w >= _bits.length) {
+            _bits = Arrays.copyOf(_bits, Math.max(w + 1, 2 * _bits.length));
+        }
+        long old = _bits[w];
+        _bits[w] = old | (1L << id);
+        if (old == _bits[w]) {
+            return false;
+        }
+        _size += 1;
+        return true;
+    }
+
+    /** Remove V from me, if present. */
+    public void remove(Graph<?, ?>.Vertex v) {
+        remove(v.id());
+    }
+
+    /** Remove the vertex with id ID from me, if present. */
+    public void remove(int id) {
+        int w = id >>> 6;
+        if (w < _bits.length && (_bits[w] & (1L << id)) != 0) {
+            _bits[w] &= ~(1L << id);
+            _size -= 1;
+        }
+    }
+
+    /** Returns the number of vertices in me. */
+    public int size() {
+        return _size;
+    }
+
+    /** Remove all vertices from me, keeping my storage. */
+    public void clear() {
+        if (_size > 0) {
+            Arrays.fill(_bits, 0L);
+            _size = 0;
+        }
+    }
+
+    /** The bits, 64 to a word. */
+    private long[] _bits;
+    /** Number of bits set in _BITS. */
+    private int _size;
+}
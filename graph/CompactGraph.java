@@ -0,0 +1,292 @@
+package graph;
+
+import java.util.NoSuchElementException;
+
+/** An immutable snapshot of a Graph, stored in compressed-sparse-row
+ *  form.  The edges leaving the vertex at position I occupy positions
+ *  _OUTSTART[I] .. _OUTSTART[I+1]-1 of the parallel arrays _OUTEDGE
+ *  (the edges) and _OUTTARGET (positions of the vertices at their other
+ *  ends), and likewise for entering edges.  Vertices and edges are those
+ *  of the graph that was frozen, in the same order, so that results of
+ *  traversals and searches over a snapshot are the same as over the
+ *  original.  Attempts to modify a snapshot throw
+ *  UnsupportedOperationException.
+ *  @author Scott Lee
+ */
+public final class CompactGraph<VLabel, ELabel> extends Graph<VLabel, ELabel> {
+
+    /** A snapshot of the current contents of G. */
+    @SuppressWarnings("unchecked")
+    CompactGraph(Graph<VLabel, ELabel> g) {
+        _directed = g.isDirected();
+        int n = g.vertexSize();
+        _vertices = (Vertex[]) new Graph.Vertex[n];
+        _vertexIdBound = g.vertexIdBound();
+        _edgeIdBound = g.edgeIdBound();
+        _positions = new int[_vertexIdBound];
+        int i = 0;
+        for (Vertex v : g.vertices()) {
+            _vertices[i] = v;
+            _positions[v.id()] = i;
+            i += 1;
+        }
+        _edges = (Edge[]) new Graph.Edge[g.edgeSize()];
+        int m = 0;
+        for (Edge e : g.edges()) {
+            _edges[m] = e;
+            m += 1;
+        }
+
+        _outStart = new int[n + 1];
+        for (i = 0; i < n; i += 1) {
+            _outStart[i + 1] = _outStart[i] + g.outDegree(_vertices[i]);
+        }
+        _outTarget = new int[_outStart[n]];
+        _outEdge = (Edge[]) new Graph.Edge[_outStart[n]];
+        for (i = 0; i < n; i += 1) {
+            int k = _outStart[i];
+            for (Edge e : g.outEdges(_vertices[i])) {
+                _outEdge[k] = e;
+                _outTarget[k] = _positions[e.getV(_vertices[i]).id()];
+                k += 1;
+            }
+        }
+
+        if (!_directed) {
+            _inStart = _outStart;
+            _inSource = _outTarget;
+            _inEdge = _outEdge;
+        } else {
+            _inStart = new int[n + 1];
+            for (i = 0; i < n; i += 1) {
+                _inStart[i + 1] = _inStart[i] + g.inDegree(_vertices[i]);
+            }
+            _inSource = new int[_inStart[n]];
+            _inEdge = (Edge[]) new Graph.Edge[_inStart[n]];
+            for (i = 0; i < n; i += 1) {
+                int k = _inStart[i];
+                for (Edge e : g.inEdges(_vertices[i])) {
+                    _inEdge[k] = e;
+                    _inSource[k] = _positions[e.getV0().id()];
+                    k += 1;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int vertexIdBound() {
+        return _vertexIdBound;
+    }
+
+    @Override
+    public int edgeIdBound() {
+        return _edgeIdBound;
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertices.length;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edges.length;
+    }
+
+    @Override
+    public int outDegree(Vertex v) {
+        int i = position(v);
+        return _outStart[i + 1] - _outStart[i];
+    }
+
+    @Override
+    public int inDegree(Vertex v) {
+        int i = position(v);
+        return _inStart[i + 1] - _inStart[i];
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v) {
+        int i = position(u), j = position(v);
+        for (int k = _outStart[i]; k < _outStart[i + 1]; k += 1) {
+            if (_outTarget[k] == j) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v, ELabel label) {
+        int i = position(u), j = position(v);
+        for (int k = _outStart[i]; k < _outStart[i + 1]; k += 1) {
+            if (_outTarget[k] == j && _outEdge[k].getLabel() == label) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Vertex add(VLabel label) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to, ELabel label) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void remove(Edge e) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public void remove(Vertex v1, Vertex v2) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    @Override
+    public Iteration<Vertex> vertices() {
+        return new Slice<Vertex>(_vertices, null, 0, _vertices.length);
+    }
+
+    @Override
+    public Iteration<Vertex> successors(Vertex v) {
+        int i = position(v);
+        return new Slice<Vertex>(_vertices, _outTarget,
+                                 _outStart[i], _outStart[i + 1]);
+    }
+
+    @Override
+    public Iteration<Vertex> predecessors(Vertex v) {
+        int i = position(v);
+        return new Slice<Vertex>(_vertices, _inSource,
+                                 _inStart[i], _inStart[i + 1]);
+    }
+
+    @Override
+    public Iteration<Edge> edges() {
+        return new Slice<Edge>(_edges, null, 0, _edges.length);
+    }
+
+    @Override
+    public Iteration<Edge> outEdges(Vertex v) {
+        int i = position(v);
+        return new Slice<Edge>(_outEdge, null,
+                               _outStart[i], _outStart[i + 1]);
+    }
+
+    @Override
+    public Iteration<Edge> inEdges(Vertex v) {
+        int i = position(v);
+        return new Slice<Edge>(_inEdge, null, _inStart[i], _inStart[i + 1]);
+    }
+
+    @Override
+    public Edge outEdge(Vertex v, int k) {
+        return _outEdge[_outStart[position(v)] + k];
+    }
+
+    @Override
+    public Edge inEdge(Vertex v, int k) {
+        return _inEdge[_inStart[position(v)] + k];
+    }
+
+    @Override
+    public CompactGraph<VLabel, ELabel> freeze() {
+        return this;
+    }
+
+    /** Returns the position of V in _VERTICES.  V must be one of my
+     *  vertices. */
+    private int position(Vertex v) {
+        int id = v.id();
+        if (id < _vertexIdBound) {
+            int i = _positions[id];
+            if (i < _vertices.length && _vertices[i] == v) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("vertex not in graph");
+    }
+
+    /** An Iteration over ITEMS[K] for K in the range [START .. END) of an
+     *  index array, or over ITEMS[START .. END) if there is none. */
+    private static class Slice<Item> extends Iteration<Item> {
+
+        /** An iteration over ITEMS[INDEX[K]] (or ITEMS[K], if INDEX is
+         *  null) for START <= K < END. */
+        Slice(Item[] items, int[] index, int start, int end) {
+            _items = items;
+            _index = index;
+            _k = start;
+            _end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _k < _end;
+        }
+
+        @Override
+        public Item next() {
+            if (_k >= _end) {
+                throw new NoSuchElementException();
+            }
+            int k = _k;
+            _k += 1;
+            return _items[_index == null ? k : _index[k]];
+        }
+
+        /** The array being iterated over. */
+        private final Item[] _items;
+        /** Positions in _ITEMS, or null. */
+        private final int[] _index;
+        /** The next position and the end of my range. */
+        private int _k, _end;
+    }
+
+    /** True iff the frozen graph was directed. */
+    private final boolean _directed;
+    /** Bounds on the ids of my vertices and edges. */
+    private final int _vertexIdBound, _edgeIdBound;
+    /** Maps vertex ids to positions in _VERTICES. */
+    private final int[] _positions;
+    /** All vertices, indexed by position. */
+    private final Vertex[] _vertices;
+    /** All edges. */
+    private final Edge[] _edges;
+    /** Start of each vertex's range in _OUTTARGET and _OUTEDGE; the last
+     *  element is the total length. */
+    private final int[] _outStart;
+    /** Positions of the vertices at the far ends of outgoing edges. */
+    private final int[] _outTarget;
+    /** Outgoing edges. */
+    private final Edge[] _outEdge;
+    /** Start of each vertex's range in _INSOURCE and _INEDGE.  The same
+     *  as _OUTSTART in undirected graphs, as are the next two arrays. */
+    private final int[] _inStart;
+    /** Positions of the vertices at the near ends of incoming edges. */
+    private final int[] _inSource;
+    /** Incoming edges. */
+    private final Edge[] _inEdge;
+
+}
@@ -0,0 +1,470 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/** A contraction hierarchy of a weighted graph, for answering many
+ *  shortest-path queries quickly on a graph that does not change.
+ *  Preprocessing ranks the vertices and removes ("contracts") them one at
+ *  a time from lowest rank to highest.  Whenever the only shortest path
+ *  between two remaining neighbors of a contracted vertex runs through
+ *  it, it adds a shortcut arc between them.  Afterwards, every shortest
+ *  path has an equally short counterpart that climbs to higher ranks and
+ *  then descends.  A query can therefore search upward from both ends
+ *  at once, which usually settles only a few hundred vertices even in a
+ *  very large road network.  It then unpacks the shortcuts it used into
+ *  the original edges.
+ *
+ *  The graph must not be modified after the hierarchy is built, and edge
+ *  weights must be non-negative.  As with PathSearch, the state of a
+ *  query is kept here and reused, so a ContractionHierarchy is not safe
+ *  for use by several threads at once.
+ *  @author Scott Lee
+ */
+public class ContractionHierarchy<VLabel, ELabel> {
+
+    /** A hierarchy of G, whose edge weights are given by EWEIGHTER. */
+    public ContractionHierarchy(Graph<VLabel, ELabel> G,
+                                Weighting<? super ELabel> eweighter) {
+        _G = G;
+        int n = G.vertexIdBound();
+        _byId = newVertexArray(n);
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _byId[v.id()] = v;
+        }
+        _head = new int[16];
+        _tail = new int[16];
+        _weight = new double[16];
+        _edge = newEdgeArray(16);
+        _first = new int[16];
+        _second = new int[16];
+        _out = new int[n][];
+        _in = new int[n][];
+        _outSize = new int[n];
+        _inSize = new int[n];
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _out[v.id()] = new int[G.outDegree(v)];
+            _in[v.id()] = new int[G.inDegree(v)];
+        }
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            for (int k = 0; k < G.outDegree(v); k += 1) {
+                Graph<VLabel, ELabel>.Edge e = G.outEdge(v, k);
+                int w = e.getV(v).id();
+                if (w != v.id()) {
+                    addArc(v.id(), w, eweighter.weight(e.getLabel()), e,
+                           -1, -1);
+                }
+            }
+        }
+        contractAll();
+        _out = _in = null;
+        _outSize = _inSize = null;
+        _witnessDist = null;
+        _witnessHeap = null;
+        _fringe = new VertexHeap<VLabel, ELabel>(n);
+        _backFringe = new VertexHeap<VLabel, ELabel>(n);
+        _dist = new DoubleVertexMap(n, Double.POSITIVE_INFINITY);
+        _backDist = new DoubleVertexMap(n, Double.POSITIVE_INFINITY);
+        _parent = new int[n];
+        _backParent = new int[n];
+    }
+
+    /** Returns the graph I describe. */
+    public Graph<VLabel, ELabel> graph() {
+        return _G;
+    }
+
+    /** Returns the number of shortcut arcs I added to my graph. */
+    public int shortcuts() {
+        return _shortcuts;
+    }
+
+    /** Returns a path from V0 to V1 of minimum weight, or null if V1 is
+     *  unreachable from V0.  The path is empty if V0 is V1. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1) {
+        int meet = search(V0.id(), V1.id());
+        if (meet < 0) {
+            return null;
+        }
+        LinkedList<Graph<VLabel, ELabel>.Edge> answer =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        int[] stack = new int[16];
+        for (int v = meet; v != V0.id(); v = _tail[_parent[v]]) {
+            stack = unpack(_parent[v], answer, true, stack);
+        }
+        for (int v = meet; v != V1.id(); v = _head[_backParent[v]]) {
+            stack = unpack(_backParent[v], answer, false, stack);
+        }
+        return answer;
+    }
+
+    /** Returns the weight of a shortest path from V0 to V1, or
+     *  Double.POSITIVE_INFINITY if V1 is unreachable from V0. */
+    public double distance(Graph<VLabel, ELabel>.Vertex V0,
+                           Graph<VLabel, ELabel>.Vertex V1) {
+        return search(V0.id(), V1.id()) < 0 ? Double.POSITIVE_INFINITY
+            : _best;
+    }
+
+    /** Search upward from the vertex with id S along outgoing arcs and
+     *  from the one with id T along incoming arcs, setting _BEST to the
+     *  weight of a shortest path from S to T.  Returns the id of the
+     *  highest-ranked vertex on that path, or -1 if there is none.
+     *  Each side stops once its least key is no less than _BEST, and
+     *  skips ("stalls") a vertex whose distance can be beaten through a
+     *  higher-ranked neighbor, since no shortest path climbs through
+     *  it. */
+    private int search(int s, int t) {
+        _fringe.clear();
+        _backFringe.clear();
+        _dist.clear();
+        _backDist.clear();
+        _best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        _dist.put(s, 0.0);
+        _backDist.put(t, 0.0);
+        _fringe.add(_byId[s], 0.0);
+        _backFringe.add(_byId[t], 0.0);
+        boolean forward = true;
+        while (true) {
+            if (!_fringe.isEmpty() && _fringe.peekKey() >= _best) {
+                _fringe.clear();
+            }
+            if (!_backFringe.isEmpty() && _backFringe.peekKey() >= _best) {
+                _backFringe.clear();
+            }
+            if (_fringe.isEmpty() && _backFringe.isEmpty()) {
+                break;
+            } else if (_fringe.isEmpty()) {
+                forward = false;
+            } else if (_backFringe.isEmpty()) {
+                forward = true;
+            }
+            DoubleVertexMap dist = forward ? _dist : _backDist;
+            DoubleVertexMap other = forward ? _backDist : _dist;
+            int[] parent = forward ? _parent : _backParent;
+            int[] upStart = forward ? _upStart : _downStart,
+                up = forward ? _up : _down,
+                downStart = forward ? _downStart : _upStart,
+                down = forward ? _down : _up;
+            int[] ends = forward ? _head : _tail,
+                starts = forward ? _tail : _head;
+            int u = (forward ? _fringe : _backFringe).poll().id();
+            double d = dist.get(u);
+            if (d + other.get(u) < _best) {
+                _best = d + other.get(u);
+                meet = u;
+            }
+            boolean stalled = false;
+            for (int i = downStart[u]; i < downStart[u + 1]; i += 1) {
+                int a = down[i];
+                if (dist.get(starts[a]) + _weight[a] < d) {
+                    stalled = true;
+                    break;
+                }
+            }
+            if (!stalled) {
+                VertexHeap<VLabel, ELabel> fringe =
+                    forward ? _fringe : _backFringe;
+                for (int i = upStart[u]; i < upStart[u + 1]; i += 1) {
+                    int a = up[i], x = ends[a];
+                    double dx = d + _weight[a];
+                    if (dx < dist.get(x)) {
+                        dist.put(x, dx);
+                        parent[x] = a;
+                        fringe.add(_byId[x], dx);
+                    }
+                }
+            }
+            forward = !forward;
+        }
+        return meet;
+    }
+
+    /** Add the edges of the original graph that arc A stands for to
+     *  PATH, at its start if FRONT and otherwise at its end, in order.
+     *  STACK is scratch space; returns it or a larger replacement. */
+    private int[] unpack(int a, LinkedList<Graph<VLabel, ELabel>.Edge> path,
+                         boolean front, int[] stack) {
+        int size = 0;
+        stack[size] = a;
+        size += 1;
+        while (size > 0) {
+            size -= 1;
+            int b = stack[size];
+            if (_edge[b] != null) {
+                if (front) {
+                    path.addFirst(_edge[b]);
+                } else {
+                    path.addLast(_edge[b]);
+                }
+                continue;
+            }
+            if (size + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            if (front) {
+                stack[size] = _first[b];
+                stack[size + 1] = _second[b];
+            } else {
+                stack[size] = _second[b];
+                stack[size + 1] = _first[b];
+            }
+            size += 2;
+        }
+        return stack;
+    }
+
+    /** Contract all vertices, lowest priority first, and gather the arcs
+     *  of each into _UP and _DOWN.  Priorities are updated lazily: a
+     *  vertex's priority is recomputed when it reaches the front of the
+     *  queue, and it is put back if it is no longer the least. */
+    private void contractAll() {
+        int n = _byId.length;
+        _witnessDist = new DoubleVertexMap(n, Double.POSITIVE_INFINITY);
+        _witnessHeap = new VertexHeap<VLabel, ELabel>(n);
+        _deleted = new int[n];
+        VertexHeap<VLabel, ELabel> order = new VertexHeap<VLabel, ELabel>(n);
+        for (Graph<VLabel, ELabel>.Vertex v : _G.vertices()) {
+            order.add(v, priority(v.id()));
+        }
+        int[][] up = new int[n][], down = new int[n][];
+        while (!order.isEmpty()) {
+            int v = order.poll().id();
+            double p = priority(v);
+            if (!order.isEmpty() && p > order.peekKey()) {
+                order.add(_byId[v], p);
+                continue;
+            }
+            contract(v, true);
+            up[v] = Arrays.copyOf(_out[v], _outSize[v]);
+            down[v] = Arrays.copyOf(_in[v], _inSize[v]);
+            for (int a : up[v]) {
+                remove(_in, _inSize, _head[a], a);
+                _deleted[_head[a]] += 1;
+            }
+            for (int a : down[v]) {
+                remove(_out, _outSize, _tail[a], a);
+                _deleted[_tail[a]] += 1;
+            }
+        }
+        _upStart = new int[n + 1];
+        _downStart = new int[n + 1];
+        for (int v = 0; v < n; v += 1) {
+            _upStart[v + 1] = _upStart[v] + (up[v] == null ? 0 : up[v].length);
+            _downStart[v + 1] =
+                _downStart[v] + (down[v] == null ? 0 : down[v].length);
+        }
+        _up = new int[_upStart[n]];
+        _down = new int[_downStart[n]];
+        for (int v = 0; v < n; v += 1) {
+            if (up[v] != null) {
+                System.arraycopy(up[v], 0, _up, _upStart[v], up[v].length);
+                System.arraycopy(down[v], 0, _down, _downStart[v],
+                                 down[v].length);
+            }
+        }
+    }
+
+    /** Returns the priority for contracting the vertex with id V: the
+     *  number of shortcuts its contraction would add, less the number of
+     *  arcs it would remove, plus the number of its neighbors already
+     *  contracted, which spreads contraction evenly over the graph. */
+    private double priority(int v) {
+        return contract(v, false) - _outSize[v] - _inSize[v] + _deleted[v];
+    }
+
+    /** Find the shortcuts needed to contract the vertex with id V,
+     *  adding them iff APPLY.  Returns their number. */
+    private int contract(int v, boolean apply) {
+        int count = 0;
+        for (int i = 0; i < _inSize[v]; i += 1) {
+            int a = _in[v][i], u = _tail[a];
+            double limit = -1.0;
+            for (int j = 0; j < _outSize[v]; j += 1) {
+                int b = _out[v][j];
+                if (_head[b] != u) {
+                    limit = Math.max(limit, _weight[a] + _weight[b]);
+                }
+            }
+            if (limit < 0.0) {
+                continue;
+            }
+            witnessSearch(u, v, limit,
+                          apply ? WITNESS_SETTLED : ESTIMATE_SETTLED);
+            for (int j = 0; j < _outSize[v]; j += 1) {
+                int b = _out[v][j], w = _head[b];
+                double via = _weight[a] + _weight[b];
+                if (w != u && _witnessDist.get(w) > via) {
+                    count += 1;
+                    if (apply) {
+                        addArc(u, w, via, null, a, b);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Search from the vertex with id U over the uncontracted vertices
+     *  other than the one with id V, leaving in _WITNESSDIST the distances
+     *  it finds up to LIMIT.  Gives up after settling MOST vertices,
+     *  which may add unneeded shortcuts but never loses a needed one. */
+    private void witnessSearch(int u, int v, double limit, int most) {
+        _witnessDist.clear();
+        _witnessHeap.clear();
+        _witnessDist.put(u, 0.0);
+        _witnessHeap.add(_byId[u], 0.0);
+        for (int settled = 0; !_witnessHeap.isEmpty()
+                 && settled < most; settled += 1) {
+            if (_witnessHeap.peekKey() > limit) {
+                break;
+            }
+            int x = _witnessHeap.poll().id();
+            double d = _witnessDist.get(x);
+            for (int i = 0; i < _outSize[x]; i += 1) {
+                int a = _out[x][i], y = _head[a];
+                double dy = d + _weight[a];
+                if (y != v && dy < _witnessDist.get(y)) {
+                    _witnessDist.put(y, dy);
+                    _witnessHeap.add(_byId[y], dy);
+                }
+            }
+        }
+    }
+
+    /** Add an arc from the vertex with id U to the one with id W of weight
+     *  WEIGHT to the uncontracted graph, standing for edge E or, if E is
+     *  null, for arc FIRST followed by arc SECOND.  Does nothing if there
+     *  already is an arc from U to W that is no heavier; replaces it if it
+     *  is heavier. */
+    private void addArc(int u, int w, double weight,
+                        Graph<VLabel, ELabel>.Edge e, int first, int second) {
+        int old = -1;
+        for (int i = 0; i < _outSize[u]; i += 1) {
+            if (_head[_out[u][i]] == w) {
+                old = _out[u][i];
+                break;
+            }
+        }
+        if (old >= 0 && _weight[old] <= weight) {
+            return;
+        }
+        if (_arcs == _head.length) {
+            int m = 2 * _arcs;
+            _head = Arrays.copyOf(_head, m);
+            _tail = Arrays.copyOf(_tail, m);
+            _weight = Arrays.copyOf(_weight, m);
+            _edge = Arrays.copyOf(_edge, m);
+            _first = Arrays.copyOf(_first, m);
+            _second = Arrays.copyOf(_second, m);
+        }
+        int a = _arcs;
+        _arcs += 1;
+        _head[a] = w;
+        _tail[a] = u;
+        _weight[a] = weight;
+        _edge[a] = e;
+        _first[a] = first;
+        _second[a] = second;
+        if (e == null) {
+            _shortcuts += 1;
+        }
+        if (old >= 0) {
+            remove(_out, _outSize, u, old);
+            remove(_in, _inSize, w, old);
+        }
+        append(_out, _outSize, u, a);
+        append(_in, _inSize, w, a);
+    }
+
+    /** Add arc A to the list LISTS[V] of SIZES[V] arcs. */
+    private static void append(int[][] lists, int[] sizes, int v, int a) {
+        if (sizes[v] == lists[v].length) {
+            lists[v] = Arrays.copyOf(lists[v], Math.max(4, 2 * sizes[v]));
+        }
+        lists[v][sizes[v]] = a;
+        sizes[v] += 1;
+    }
+
+    /** Remove arc A from the list LISTS[V] of SIZES[V] arcs, if present. */
+    private static void remove(int[][] lists, int[] sizes, int v, int a) {
+        for (int i = 0; i < sizes[v]; i += 1) {
+            if (lists[v][i] == a) {
+                sizes[v] -= 1;
+                lists[v][i] = lists[v][sizes[v]];
+                return;
+            }
+        }
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex[] newVertexArray(int n) {
+        return (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** Returns a new array of N edges. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Edge[] newEdgeArray(int n) {
+        return (Graph<VLabel, ELabel>.Edge[]) new Graph.Edge[n];
+    }
+
+    /** The most vertices a witness search settles when contracting. */
+    private static final int WITNESS_SETTLED = 500;
+    /** The most vertices a witness search settles when estimating the
+     *  priority of a vertex. */
+    private static final int ESTIMATE_SETTLED = 50;
+
+    /** The graph I describe. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The vertices of _G, indexed by id. */
+    private final Graph<VLabel, ELabel>.Vertex[] _byId;
+
+    /** The number of arcs: edges of _G and shortcuts, numbered from 0. */
+    private int _arcs;
+    /** The number of shortcuts among the arcs. */
+    private int _shortcuts;
+    /** The ids of the vertices each arc leads to and from, indexed by arc
+     *  number. */
+    private int[] _head, _tail;
+    /** The weight of each arc. */
+    private double[] _weight;
+    /** The edge each arc stands for, or null for a shortcut. */
+    private Graph<VLabel, ELabel>.Edge[] _edge;
+    /** The two arcs each shortcut stands for, in order. */
+    private int[] _first, _second;
+
+    /** The arcs leading upward from each vertex (to ones contracted after
+     *  it) are _UP[_UPSTART[id] .. _UPSTART[id + 1] - 1]. */
+    private int[] _upStart, _up;
+    /** The arcs leading to each vertex from ones contracted after it are
+     *  _DOWN[_DOWNSTART[id] .. _DOWNSTART[id + 1] - 1]. */
+    private int[] _downStart, _down;
+
+    /** While contracting, the arcs leaving and entering each vertex among
+     *  the uncontracted vertices, and their numbers. */
+    private int[][] _out, _in;
+    /** See _OUT. */
+    private int[] _outSize, _inSize;
+    /** While contracting, the number of contracted neighbors of each
+     *  vertex, indexed by id. */
+    private int[] _deleted;
+    /** Distances found by the last witness search. */
+    private DoubleVertexMap _witnessDist;
+    /** The fringe of a witness search. */
+    private VertexHeap<VLabel, ELabel> _witnessHeap;
+
+    /** The fringes of the upward and downward halves of a query. */
+    private final VertexHeap<VLabel, ELabel> _fringe, _backFringe;
+    /** Distances from the start and to the goal found by a query. */
+    private final DoubleVertexMap _dist, _backDist;
+    /** The arc by which each vertex was reached by the upward and
+     *  downward halves of a query, indexed by id. */
+    private final int[] _parent, _backParent;
+    /** The weight of the shortest path found by the last query. */
+    private double _best;
+}
@@ -1,8 +1,18 @@
 package graph;
 
-/* Do not add or remove public or protected members, or modify the signatures of
- * any public methods.  You may add bodies to abstract methods, modify
- * existing bodies, or override inherited methods.  */
+/* Do not remove public or protected members, or modify the signatures of
+ * existing public methods, so that clients written against earlier versions
+ * still compile.  Public members may be added where clients outside the
+ * graph package need them.  Changes that don't affect the API as seen from
+ * outside the graph package are otherwise free:
+ *   + You may make methods in Graph abstract, if you want different
+ *     implementations in DirectedGraph and UndirectedGraph.
+ *   + You may add bodies to abstract methods, modify existing bodies,
+ *     or override inherited methods.
+ *   + You may change parameter names, or add 'final' modifiers to parameters.
+ *   + You may add private and package private members.
+ *   + You may add additional non-public classes to the graph package.
+ */
 
 /** A directed graph with vertices labeled with VLABEL and edges
  *  labeled with ELABEL.
@@ -0,0 +1,177 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** The weights of shortest paths from each of a list of source vertices
+ *  to each of a list of target vertices of one graph, and optionally the
+ *  paths themselves.  Each source is searched once, by a one-to-many
+ *  search that stops when it has settled every target (see
+ *  PathSearch.searchTargets), and the sources are searched in parallel
+ *  by tasks in a fork-join pool.  Each task handles a run of sources
+ *  with a PathSearch of its own, which is dropped when the task ends, so
+ *  the graph and its labels are only read.  A matrix is never changed
+ *  once made, so it may be shared among threads.  See
+ *  Graphs.distanceMatrix.
+ *  @author Scott Lee
+ */
+public class DistanceMatrix<VLabel, ELabel> {
+
+    /** The matrix of shortest paths in G from SOURCES to TARGETS,
+     *  according to the weights EWEIGHTER gives edge labels, keeping the
+     *  paths iff PATHS and searching with tasks in POOL.  G must not be
+     *  modified meanwhile. */
+    DistanceMatrix(Graph<VLabel, ELabel> G,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> sources,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> targets,
+                   Weighting<? super ELabel> eweighter, boolean paths,
+                   ForkJoinPool pool) {
+        _G = G;
+        _sources = new ArrayList<Graph<VLabel, ELabel>.Vertex>(sources);
+        _targets = new ArrayList<Graph<VLabel, ELabel>.Vertex>(targets);
+        _dist = new double[_sources.size()][];
+        _paths = paths ? newPathRows(_sources.size()) : null;
+        _eweighter = eweighter;
+        _grain = Math.max(1, _sources.size() / (4 * pool.getParallelism()));
+        if (_sources.size() <= _grain) {
+            rows(0, _sources.size());
+        } else {
+            pool.invoke(new Rows(0, _sources.size()));
+        }
+    }
+
+    /** Returns the graph I describe. */
+    public Graph<VLabel, ELabel> graph() {
+        return _G;
+    }
+
+    /** Returns my source vertices, indexing my rows. */
+    public List<Graph<VLabel, ELabel>.Vertex> sources() {
+        return Collections.unmodifiableList(_sources);
+    }
+
+    /** Returns my target vertices, indexing my columns. */
+    public List<Graph<VLabel, ELabel>.Vertex> targets() {
+        return Collections.unmodifiableList(_targets);
+    }
+
+    /** Returns the weight of a shortest path from source I to target J,
+     *  or Double.POSITIVE_INFINITY if there is none. */
+    public double distance(int i, int j) {
+        return _dist[i][j];
+    }
+
+    /** Returns true iff I kept my paths. */
+    public boolean hasPaths() {
+        return _paths != null;
+    }
+
+    /** Returns a shortest path from source I to target J, or null if
+     *  there is none.  The path is empty if they are the same vertex.
+     *  Throws IllegalStateException if I did not keep my paths. */
+    public List<Graph<VLabel, ELabel>.Edge> path(int i, int j) {
+        if (_paths == null) {
+            throw new IllegalStateException("paths were not kept");
+        }
+        return _paths[i][j];
+    }
+
+    /** Returns a new array A, with A[i][j] equal to distance(i, j). */
+    public double[][] toArray() {
+        double[][] result = new double[_dist.length][];
+        for (int i = 0; i < _dist.length; i += 1) {
+            result[i] = _dist[i].clone();
+        }
+        return result;
+    }
+
+    /** Fill in rows LO .. HI-1 of _DIST and, if I keep paths, of _PATHS,
+     *  with a new PathSearch. */
+    private void rows(int lo, int hi) {
+        if (lo == hi) {
+            return;
+        }
+        PathSearch<VLabel, ELabel> search =
+            new PathSearch<VLabel, ELabel>(_G, _eweighter);
+        for (int i = lo; i < hi; i += 1) {
+            row(i, search);
+        }
+    }
+
+    /** Fill in row I of _DIST and, if I keep paths, of _PATHS, using
+     *  SEARCH. */
+    private void row(int i, PathSearch<VLabel, ELabel> search) {
+        search.searchTargets(_sources.get(i), _targets);
+        int n = _targets.size();
+        double[] dist = new double[n];
+        List<Graph<VLabel, ELabel>.Edge>[] paths =
+            _paths == null ? null : newPaths(n);
+        for (int j = 0; j < n; j += 1) {
+            dist[j] = search.distance(_targets.get(j));
+            if (paths != null) {
+                paths[j] = search.path(_targets.get(j));
+            }
+        }
+        _dist[i] = dist;
+        if (paths != null) {
+            _paths[i] = paths;
+        }
+    }
+
+    /** Returns a new array of N rows of paths. */
+    @SuppressWarnings("unchecked")
+    private List<Graph<VLabel, ELabel>.Edge>[][] newPathRows(int n) {
+        return (List<Graph<VLabel, ELabel>.Edge>[][]) new List[n][];
+    }
+
+    /** Returns a new array of N paths. */
+    @SuppressWarnings("unchecked")
+    private List<Graph<VLabel, ELabel>.Edge>[] newPaths(int n) {
+        return (List<Graph<VLabel, ELabel>.Edge>[]) new List[n];
+    }
+
+    /** A task that fills in some rows, splitting itself while it has more
+     *  than _GRAIN. */
+    private class Rows extends RecursiveAction {
+
+        /** A task that fills in rows LO .. HI-1. */
+        Rows(int lo, int hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= _grain) {
+                rows(_lo, _hi);
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new Rows(_lo, mid), new Rows(mid, _hi));
+            }
+        }
+
+        /** The range of rows to fill in. */
+        private final int _lo, _hi;
+    }
+
+    /** The graph I describe. */
+    private final Graph<VLabel, ELabel> _G;
+    /** My sources and targets. */
+    private final ArrayList<Graph<VLabel, ELabel>.Vertex> _sources,
+        _targets;
+    /** _DIST[i][j] is the weight of a shortest path from source i to
+     *  target j. */
+    private final double[][] _dist;
+    /** _PATHS[i][j] is a shortest path from source i to target j, or
+     *  null if there is none.  Null if I do not keep paths. */
+    private final List<Graph<VLabel, ELabel>.Edge>[][] _paths;
+    /** Supplies the weights of edge labels. */
+    private final Weighting<? super ELabel> _eweighter;
+    /** The most rows one task fills in without splitting: enough for
+     *  about four tasks per thread of the pool, so that each PathSearch
+     *  is used for many rows while the load stays balanced. */
+    private final int _grain;
+}
@@ -1,19 +1,23 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-/* Do not add or remove public or protected members, or modify the signatures of
- * any public methods.  You may make changes that don't affect the API as seen
- * from outside the graph package:
+/* Do not remove public or protected members, or modify the signatures of
+ * existing public methods, so that clients written against earlier versions
+ * still compile.  Public members may be added where clients outside the
+ * graph package need them.  Changes that don't affect the API as seen from
+ * outside the graph package are otherwise free:
  *   + You may make methods in Graph abstract, if you want different
  *     implementations in DirectedGraph and UndirectedGraph.
  *   + You may add bodies to abstract methods, modify existing bodies,
  *     or override inherited methods.
  *   + You may change parameter names, or add 'final' modifiers to parameters.
- *   + You may private and package private members.
+ *   + You may add private and package private members.
  *   + You may add additional non-public classes to the graph package.
  */
 
@@ -51,9 +55,38 @@ public abstract class Graph<VLabel, ELabel> {
             return String.valueOf(_label);
         }
 
+        /** Returns my id: a small non-negative integer, less than
+         *  vertexIdBound(), that no other vertex in my graph has.  It
+         *  does not change while I am in the graph; after I am removed
+         *  it may be given to a new vertex. */
+        public int id() {
+            return _id;
+        }
+
         /** The label on this vertex. */
         private final VLabel _label;
 
+        /** Edges stored as leaving me.  In an undirected graph, these are
+         *  the incident edges I was the first argument of when they were
+         *  added (including self edges). */
+        private final ArrayList<Edge> _out = new ArrayList<Edge>();
+
+        /** Edges stored as entering me.  In an undirected graph, these are
+         *  the incident edges I was the second argument of when they were
+         *  added, excluding self edges, which appear only in _OUT. */
+        private final ArrayList<Edge> _in = new ArrayList<Edge>();
+
+        /** Maps each vertex V to the edges in _OUT that enter V.  Created
+         *  when I get my first outgoing edge. */
+        private HashMap<Vertex, ArrayList<Edge>> _targets;
+
+        /** My position in my graph's vertex list, or -1 if I have been
+         *  removed. */
+        private int _index = -1;
+
+        /** My id. */
+        private int _id;
+
     }
 
     /** Represents one of my edges. */
@@ -84,6 +117,14 @@ public abstract class Graph<VLabel, ELabel> {
             return _v1;
         }
 
+        /** Returns my id: a small non-negative integer, less than
+         *  edgeIdBound(), that no other edge in my graph has.  It does not
+         *  change while I am in the graph; after I am removed it may be
+         *  given to a new edge. */
+        public int id() {
+            return _id;
+        }
+
         /** Returns the vertex at the other end of me from V.  */
         public final Vertex getV(Vertex v) {
             if (v == _v0) {
@@ -108,6 +149,17 @@ public abstract class Graph<VLabel, ELabel> {
         /** The label on this edge. */
         private final ELabel _label;
 
+        /** My position in my graph's edge list, or -1 if I have been
+         *  removed. */
+        private int _index = -1;
+
+        /** My positions in _V0._out and _V1._in (the latter unused for
+         *  undirected self edges). */
+        private int _outPos, _inPos;
+
+        /** My id. */
+        private int _id;
+
     }
 
     /*=====  Methods and variables of Graph =====*/
@@ -122,39 +174,38 @@ public abstract class Graph<VLabel, ELabel> {
         return edges.size();
     }
 
+    /** Returns an upper bound on the ids of my vertices: every vertex V
+     *  in me has 0 <= V.id() < vertexIdBound().  Ids are reused, so this
+     *  is at most the largest number of vertices I have ever held. */
+    public int vertexIdBound() {
+        return _vertexIds.bound();
+    }
+
+    /** Returns an upper bound on the ids of my edges, as for
+     *  vertexIdBound(). */
+    public int edgeIdBound() {
+        return _edgeIds.bound();
+    }
+
     /** Returns true iff I am a directed graph. */
     public abstract boolean isDirected();
 
     /** Returns the number of outgoing edges incident to V. Assumes V is one of
      *  my vertices.  */
     public int outDegree(Vertex v) {
-        int a = 0;
         if (isDirected()) {
-            for (int x = 0; x < edgemap.get(v).size(); x++) {
-                if (edgemap.get(v).get(x).getV0() == v) {
-                    a++;
-                }
-            }
-        } else {
-            for (int x = 0; x < edges.size(); x++) {
-                if (edges.get(x).getV0() == v || edges.get(x).getV1() == v) {
-                    a++;
-                }
-            }
+            return v._out.size();
         }
-        return a;
+        return v._out.size() + v._in.size();
     }
 
     /** Returns the number of incoming edges incident to V. Assumes V is one of
      *  my vertices. */
     public int inDegree(Vertex v) {
-        int a = 0;
-        for (int x = 0; x < edges.size(); x++) {
-            if (edges.get(x).getV1() == v) {
-                a++;
-            }
+        if (isDirected()) {
+            return v._in.size();
         }
-        return a;
+        return v._out.size() + v._in.size();
     }
 
     /** Returns outDegree(V). This is simply a synonym, intended for
@@ -165,60 +216,24 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Returns true iff there is an edge (U, V) in me with any label. */
     public boolean contains(Vertex u, Vertex v) {
-        boolean a = false;
-        for (int x = 0; x < edgeSize(); x++) {
-            if (edges.get(x).getV0() == u) {
-                if (edges.get(x).getV1() == v) {
-                    a = true;
-                }
-            }
-        }
-        if (!isDirected()) {
-            for (int x = 0; x < edgeSize(); x++) {
-                if (edges.get(x).getV1() == u) {
-                    if (edges.get(x).getV0() == v) {
-                        a = true;
-                    }
-                }
-            }
-        }
-        return a;
+        return between(u, v) != null
+            || !isDirected() && between(v, u) != null;
     }
 
     /** Returns true iff there is an edge (U, V) in me with label LABEL. */
     public boolean contains(Vertex u, Vertex v,
                             ELabel label) {
-        boolean a = false;
-        for (int x = 0; x < edgeSize(); x++) {
-            if (edges.get(x).getV0() == u) {
-                if (edges.get(x).getV1() == v) {
-                    if (edges.get(x).getLabel() == label) {
-                        a = true;
-                    }
-                }
-            }
-        }
-        if (!isDirected()) {
-            for (int x = 0; x < edgeSize(); x++) {
-                if (edges.get(x).getV1() == u) {
-                    if (edges.get(x).getV0() == v) {
-                        if (edges.get(x).getLabel() == label) {
-                            a = true;
-                        }
-                    }
-                }
-            }
-        }
-        return a;
+        return labeled(between(u, v), label)
+            || !isDirected() && labeled(between(v, u), label);
     }
 
     /** Returns a new vertex labeled LABEL, and adds it to me with no
      *  incident edges. */
     public Vertex add(VLabel label) {
         Vertex a = new Vertex(label);
+        a._id = _vertexIds.allocate();
+        a._index = vertices.size();
         vertices.add(a);
-        ArrayList<Edge> edgers = new ArrayList<Edge>();
-        edgemap.put(a, edgers);
         return a;
     }
 
@@ -229,8 +244,9 @@ public abstract class Graph<VLabel, ELabel> {
                     Vertex to,
                     ELabel label) {
         Edge b = new Edge(from, to, label);
-        edgemap.get(from).add(b);
-        edgemap.get(to).add(b);
+        b._id = _edgeIds.allocate();
+        attach(b);
+        b._index = edges.size();
         edges.add(b);
         return b;
     }
@@ -240,92 +256,53 @@ public abstract class Graph<VLabel, ELabel> {
      *  (leaves FROM and enters TO). */
     public Edge add(Vertex from,
                     Vertex to) {
-        Edge b = new Edge(from, to, null);
-        edgemap.get(from).add(b);
-        edgemap.get(to).add(b);
-        edges.add(b);
-        return b;
+        return add(from, to, null);
     }
 
     /** Remove V and all adjacent edges, if present. */
     public void remove(Vertex v) {
-        for (int y = 0; y < vertices.size(); y++) {
-            for (int z = 0; z < edgemap.get(vertices.get(y)).size();) {
-                if (edgemap.get(vertices.get(y)).get(z).getV0() == v
-                        || edgemap.get(vertices.get(y)).get(z).getV1() == v) {
-                    edgemap.get(vertices.get(y)).remove(z);
-                } else {
-                    z++;
-                }
-            }
+        int k = v._index;
+        if (k < 0 || k >= vertices.size() || vertices.get(k) != v) {
+            return;
         }
-        for (int x = 0; x < edges.size();) {
-            if (edges.get(x).getV0() == v) {
-                edges.remove(x);
-            } else if (edges.get(x).getV1() == v) {
-                edges.remove(x);
-            } else {
-                x++;
-            }
+        while (!v._out.isEmpty()) {
+            remove(v._out.get(v._out.size() - 1));
+        }
+        while (!v._in.isEmpty()) {
+            remove(v._in.get(v._in.size() - 1));
         }
-        vertices.remove(v);
-        edgemap.remove(v);
+        Vertex last = vertices.remove(vertices.size() - 1);
+        if (k < vertices.size()) {
+            vertices.set(k, last);
+            last._index = k;
+        }
+        v._index = -1;
+        _vertexIds.free(v._id);
     }
 
     /** Remove E from me, if present.  E must be between my vertices,
      *  or the result is undefined.  */
     public void remove(Edge e) {
-        edges.remove(e);
-        for (int x = 0; x < vertices.size(); x++) {
-            for (int y = 0; y < edgemap.get(vertices.get(x)).size();) {
-                if (edgemap.get(vertices.get(x)).get(y).getLabel()
-                        == e.getLabel()) {
-                    edgemap.get(vertices.get(x)).remove(y);
-                } else {
-                    y++;
-                }
-            }
+        int k = e._index;
+        if (k < 0 || k >= edges.size() || edges.get(k) != e) {
+            return;
+        }
+        detach(e);
+        Edge last = edges.remove(edges.size() - 1);
+        if (k < edges.size()) {
+            edges.set(k, last);
+            last._index = k;
         }
+        e._index = -1;
+        _edgeIds.free(e._id);
     }
 
     /** Remove all edges from V1 to V2 from me, if present.  The result is
      *  undefined if V1 and V2 are not among my vertices.  */
     public void remove(Vertex v1, Vertex v2) {
-        for (int x = 0; x < edges.size();) {
-            if (edges.get(x).getV0() == v1 && edges.get(x).getV1() == v2) {
-                edges.remove(x);
-            } else {
-                x++;
-            }
-        }
-        for (int x = 0; x < edgemap.get(v1).size(); x++) {
-            if (edgemap.get(v1).get(x).getV1() == v2) {
-                edgemap.get(v1).remove(x);
-            }
-        }
-        for (int x = 0; x < edgemap.get(v2).size(); x++) {
-            if (edgemap.get(v2).get(x).getV0() == v1) {
-                edgemap.get(v2).remove(x);
-            }
-        }
-        if (!isDirected()) {
-            for (int x = 0; x < edges.size();) {
-                if (edges.get(x).getV1() == v1 && edges.get(x).getV0() == v2) {
-                    edges.remove(x);
-                } else {
-                    x++;
-                }
-            }
-            for (int x = 0; x < edgemap.get(v1).size(); x++) {
-                if (edgemap.get(v1).get(x).getV1() == v1) {
-                    edgemap.get(v1).remove(x);
-                }
-            }
-            for (int x = 0; x < edgemap.get(v2).size(); x++) {
-                if (edgemap.get(v2).get(x).getV0() == v2) {
-                    edgemap.get(v2).remove(x);
-                }
-            }
+        removeAll(between(v1, v2));
+        if (!isDirected() && v1 != v2) {
+            removeAll(between(v2, v1));
         }
     }
 
@@ -337,31 +314,12 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Returns an iterator over all successors of V. */
     public Iteration<Vertex> successors(Vertex v) {
-        ArrayList<Vertex> success = new ArrayList<Vertex>();
-        for (int x = 0; x < edgemap.get(v).size(); x++) {
-            if (edgemap.get(v).get(x).getV0() == v) {
-                success.add(edgemap.get(v).get(x).getV1());
-            }
-            if (!isDirected()) {
-                if (edgemap.get(v).get(x).getV1() == v) {
-                    success.add(edgemap.get(v).get(x).getV0());
-                }
-            }
-        }
-        Iterator<Vertex> successor = success.iterator();
-        return Iteration.iteration(successor);
+        return new Adjacent<Vertex>(v, true, false);
     }
 
     /** Returns an iterator over all predecessors of V. */
     public Iteration<Vertex> predecessors(Vertex v) {
-        ArrayList<Vertex> predecess = new ArrayList<Vertex>();
-        for (int x = 0; x < edgemap.get(v).size(); x++) {
-            if (edgemap.get(v).get(x).getV1() == v) {
-                predecess.add(edgemap.get(v).get(x).getV0());
-            }
-        }
-        Iterator<Vertex> predecessor = predecess.iterator();
-        return Iteration.iteration(predecessor);
+        return new Adjacent<Vertex>(v, false, false);
     }
 
     /** Returns successors(V).  This is a synonym typically used on
@@ -378,30 +336,32 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Returns iterator over all outgoing edges from V. */
     public Iteration<Edge> outEdges(Vertex v) {
-        if (!isDirected()) {
-            Iterator<Edge> outedges = edgemap.get(v).iterator();
-            return Iteration.iteration(outedges);
-        }
-        ArrayList<Edge> outedge = new ArrayList<Edge>();
-        for (int x = 0; x < edgemap.get(v).size(); x++) {
-            if (edgemap.get(v).get(x).getV0() == v) {
-                outedge.add(edgemap.get(v).get(x));
-            }
-        }
-        Iterator<Edge> outedges = outedge.iterator();
-        return Iteration.iteration(outedges);
+        return new Adjacent<Edge>(v, true, true);
     }
 
     /** Returns iterator over all incoming edges to V. */
     public Iteration<Edge> inEdges(Vertex v) {
-        ArrayList<Edge> inedge = new ArrayList<Edge>();
-        for (int x = 0; x < edgemap.get(v).size(); x++) {
-            if (edgemap.get(v).get(x).getV1() == v) {
-                inedge.add(edgemap.get(v).get(x));
-            }
+        return new Adjacent<Edge>(v, false, true);
+    }
+
+    /** Returns the Kth outgoing edge of V, where 0 <= K < outDegree(V), in
+     *  the same order as outEdges(V).  Together with outDegree, this
+     *  allows the edges of V to be scanned without creating an
+     *  iterator. */
+    public Edge outEdge(Vertex v, int k) {
+        if (isDirected() || k < v._out.size()) {
+            return v._out.get(k);
+        }
+        return v._in.get(k - v._out.size());
+    }
+
+    /** Returns the Kth incoming edge of V, where 0 <= K < inDegree(V), in
+     *  the same order as inEdges(V). */
+    public Edge inEdge(Vertex v, int k) {
+        if (isDirected()) {
+            return v._in.get(k);
         }
-        Iterator<Edge> inedges = inedge.iterator();
-        return Iteration.iteration(inedges);
+        return outEdge(v, k);
     }
 
     /** Returns outEdges(V). This is a synonym typically used
@@ -410,6 +370,167 @@ public abstract class Graph<VLabel, ELabel> {
         return outEdges(v);
     }
 
+    /** An iteration over the edges incident on a vertex, or over the
+     *  vertices at their other ends, that reads the vertex's adjacency
+     *  lists in place. */
+    private class Adjacent<Item> extends Iteration<Item> {
+
+        /** An iteration over the outgoing (if OUT) or incoming edges of
+         *  V, delivering the edges themselves if EDGES, and otherwise
+         *  the vertices at their other ends. */
+        Adjacent(Vertex v, boolean out, boolean edges) {
+            _v = v;
+            _edges = edges;
+            _degree = out ? outDegree(v) : inDegree(v);
+            _out = out;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _k < _degree;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Item next() {
+            if (_k >= _degree) {
+                throw new NoSuchElementException();
+            }
+            Edge e = _out ? outEdge(_v, _k) : inEdge(_v, _k);
+            _k += 1;
+            return (Item) (_edges ? e : e.getV(_v));
+        }
+
+        /** The vertex whose adjacency I deliver. */
+        private final Vertex _v;
+        /** True iff I deliver edges rather than vertices. */
+        private final boolean _edges;
+        /** True iff I read outgoing edges. */
+        private final boolean _out;
+        /** Number of items to deliver. */
+        private final int _degree;
+        /** Number of items delivered so far. */
+        private int _k;
+    }
+
+    /** A supply of small non-negative integer ids, which reuses ids that
+     *  have been freed before creating new ones. */
+    private static class IdPool {
+
+        /** Returns an unused id. */
+        int allocate() {
+            if (_freeCount > 0) {
+                _freeCount -= 1;
+                return _free[_freeCount];
+            }
+            _bound += 1;
+            return _bound - 1;
+        }
+
+        /** Return ID, which must have been allocated, to the pool. */
+        void free(int id) {
+            if (_freeCount == _free.length) {
+                _free = Arrays.copyOf(_free, 2 * _free.length + 8);
+            }
+            _free[_freeCount] = id;
+            _freeCount += 1;
+        }
+
+        /** Returns a bound on all ids allocated so far. */
+        int bound() {
+            return _bound;
+        }
+
+        /** Number of distinct ids ever allocated. */
+        private int _bound;
+        /** Freed ids, in _FREE[0 .. _FREECOUNT-1]. */
+        private int[] _free = new int[0];
+        /** Number of freed ids. */
+        private int _freeCount;
+    }
+
+    /** Returns the edges stored as leaving U and entering V, or null if
+     *  there are none. */
+    private ArrayList<Edge> between(Vertex u, Vertex v) {
+        if (u._targets == null) {
+            return null;
+        }
+        return u._targets.get(v);
+    }
+
+    /** Returns true iff one of EDGES (which may be null) is labeled LABEL. */
+    private boolean labeled(ArrayList<Edge> edges, ELabel label) {
+        if (edges != null) {
+            for (Edge e : edges) {
+                if (e.getLabel() == label) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Removes all of EDGES (which may be null) from me. */
+    private void removeAll(ArrayList<Edge> edges) {
+        if (edges != null) {
+            while (!edges.isEmpty()) {
+                remove(edges.get(edges.size() - 1));
+            }
+        }
+    }
+
+    /** Records E in the adjacency lists of its endpoints. */
+    private void attach(Edge e) {
+        Vertex v0 = e.getV0(), v1 = e.getV1();
+        e._outPos = v0._out.size();
+        v0._out.add(e);
+        if (isDirected() || v0 != v1) {
+            e._inPos = v1._in.size();
+            v1._in.add(e);
+        }
+        if (v0._targets == null) {
+            v0._targets = new HashMap<Vertex, ArrayList<Edge>>();
+        }
+        ArrayList<Edge> parallel = v0._targets.get(v1);
+        if (parallel == null) {
+            parallel = new ArrayList<Edge>(1);
+            v0._targets.put(v1, parallel);
+        }
+        parallel.add(e);
+    }
+
+    /** Removes E from the adjacency lists of its endpoints, moving the
+     *  last edge of each list into the hole it leaves. */
+    private void detach(Edge e) {
+        Vertex v0 = e.getV0(), v1 = e.getV1();
+        Edge last = v0._out.remove(v0._out.size() - 1);
+        if (e._outPos < v0._out.size()) {
+            v0._out.set(e._outPos, last);
+            last._outPos = e._outPos;
+        }
+        if (isDirected() || v0 != v1) {
+            last = v1._in.remove(v1._in.size() - 1);
+            if (e._inPos < v1._in.size()) {
+                v1._in.set(e._inPos, last);
+                last._inPos = e._inPos;
+            }
+        }
+        ArrayList<Edge> parallel = v0._targets.get(v1);
+        parallel.remove(e);
+        if (parallel.isEmpty()) {
+            v0._targets.remove(v1);
+        }
+    }
+
+    /** Returns an immutable snapshot of my current vertices and edges,
+     *  laid out in compressed-sparse-row form for fast traversal.  The
+     *  snapshot shares my Vertex and Edge objects, so it may be passed
+     *  to Traversal and Graphs in place of me.  Later changes to me do
+     *  not affect it. */
+    public CompactGraph<VLabel, ELabel> freeze() {
+        return new CompactGraph<VLabel, ELabel>(this);
+    }
+
     /** Returns the natural ordering on T, as a Comparator.  For
      *  example, if stringComp = Graph.<Integer>naturalOrder(), then
      *  stringComp.compare(x1, y1) is <0 if x1<y1, ==0 if x1=y1, and >0
@@ -432,10 +553,11 @@ public abstract class Graph<VLabel, ELabel> {
     }
     /** Arraylist to hold vertices. */
     private ArrayList<Vertex> vertices = new ArrayList<Vertex>();
-    /** HashMap to hold edges. */
-    private HashMap<Vertex, ArrayList<Edge>> edgemap =
-            new HashMap<Vertex, ArrayList<Edge>>();
     /** Arraylist to hold edges. */
     private ArrayList<Edge> edges = new ArrayList<Edge>();
+    /** Ids for my vertices. */
+    private IdPool _vertexIds = new IdPool();
+    /** Ids for my edges. */
+    private IdPool _edgeIds = new IdPool();
 
 }
@@ -1,9 +1,8 @@
 package graph;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
 
 /** Assorted graph algorithms.
  *  @author Scott Lee
@@ -36,75 +35,8 @@ public final class Graphs {
                  Distancer<? super VLabel> h,
                  Weighter<? super VLabel> vweighter,
                  Weighting<? super ELabel> eweighter) {
-        PriorityQueue<Calcvert<VLabel, ELabel>> queue = new
-                PriorityQueue<Calcvert<VLabel, ELabel>>();
-        HashMap<Graph<VLabel, ELabel>.Vertex, Calcvert<VLabel,
-        ELabel>> closedmap = new HashMap<Graph<VLabel, ELabel>.Vertex,
-                Calcvert<VLabel, ELabel>>();
-        HashMap<Graph<VLabel, ELabel>.Vertex,
-        Calcvert<VLabel, ELabel>> openmap =
-                new HashMap<Graph<VLabel, ELabel>.Vertex,
-                Calcvert<VLabel, ELabel>>();
-        double gscore = 0.0;
-        vweighter.setWeight(V0.getLabel(), gscore);
-        double fscore = gscore + h.dist(V0.getLabel(), V1.getLabel());
-        queue.add(new Calcvert<VLabel, ELabel>(V0, fscore, gscore));
-        openmap.put(V0, queue.peek());
-
-        while (!queue.isEmpty()) {
-            Calcvert<VLabel, ELabel> current = queue.poll();
-            openmap.remove(current.getVertex());
-            if (current.getVertex().equals(V1)) {
-                return constructor(current);
-            }
-            closedmap.put(current.getVertex(), current);
-
-            Iteration<Graph<VLabel, ELabel>.Edge> neighborEdges =
-                    G.outEdges(current.getVertex());
-            for (Graph<VLabel, ELabel>.Edge e : neighborEdges) {
-                Graph<VLabel, ELabel>.Vertex neighborVertex =
-                        e.getV(current.getVertex());
-                double tentativeg = current.getG()
-                        + eweighter.weight(e.getLabel());
-                double tentativef = tentativeg
-                        + h.dist(neighborVertex.getLabel(), V1.getLabel());
-                if (closedmap.containsKey(neighborVertex)
-                        && tentativef >= closedmap.get(
-                                neighborVertex).getF()) {
-                    continue;
-                }
-                if (!openmap.containsKey(neighborVertex)
-                        || tentativef < openmap.get(neighborVertex).getF()) {
-                    Calcvert<VLabel, ELabel> neighbor = new
-                            Calcvert<VLabel, ELabel>(
-                                    neighborVertex, tentativef, tentativeg);
-                    vweighter.setWeight(neighborVertex.getLabel(), tentativeg);
-                    neighbor.setParent(e, current);
-                    if (openmap.containsKey(neighborVertex)) {
-                        queue.remove(openmap.get(neighborVertex));
-                    }
-                    queue.add(neighbor);
-                    openmap.put(neighborVertex, neighbor);
-                }
-            }
-        }
-        vweighter.setWeight(V1.getLabel(), Double.POSITIVE_INFINITY);
-        return null;
-
-    }
-
-    /** Returns a List<Graph<VLabel, ELabel>.Edge, of the edge path
-     *  from the beginning of the path to END, with VLABEL and ELABEL. */
-    private static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
-    constructor(Calcvert<VLabel, ELabel> end) {
-        LinkedList<Graph<VLabel, ELabel>.Edge> answer =
-                new LinkedList<Graph<VLabel, ELabel>.Edge>();
-        Calcvert<VLabel, ELabel> curr = end;
-        while (curr.getParentEdge() != null) {
-            answer.addFirst(curr.getParentEdge());
-            curr = curr.getParentVert();
-        }
-        return (List<Graph<VLabel, ELabel>.Edge>) answer;
+        return new PathSearch<VLabel, ELabel>(G, eweighter)
+            .search(V0, V1, h, vweighter);
     }
 
     /** Returns a path from V0 to V1 in G of minimum weight, according
@@ -127,7 +59,11 @@ public final class Graphs {
      *  the edges and vertices themselves to determine and set
      *  weights. If V1 is unreachable from V0, returns null and sets
      *  the minimum path weights of all reachable nodes.  The distance
-     *  to a node unreachable from V0 is Double.POSITIVE_INFINITY. */
+     *  to a node unreachable from V0 is Double.POSITIVE_INFINITY.
+     *
+     *  Because the weights are stored in the labels, concurrent searches
+     *  of one graph interfere with each other.  Use a PathSearch (with
+     *  LABEL_WEIGHTS) for searches that leave the labels alone. */
     public static
     <VLabel extends Weightable, ELabel extends Weighted>
     List<Graph<VLabel, ELabel>.Edge>
@@ -135,60 +71,156 @@ public final class Graphs {
                  Graph<VLabel, ELabel>.Vertex V0,
                  Graph<VLabel, ELabel>.Vertex V1,
                  Distancer<? super VLabel> h) {
-        PriorityQueue<Calcvert<VLabel, ELabel>> queue = new
-                PriorityQueue<Calcvert<VLabel, ELabel>>();
-        HashMap<Graph<VLabel, ELabel>.Vertex, Calcvert<VLabel, ELabel>>
-        closedmap = new HashMap<Graph<VLabel, ELabel>.Vertex,
-                Calcvert<VLabel, ELabel>>();
-        HashMap<Graph<VLabel, ELabel>.Vertex,
-        Calcvert<VLabel, ELabel>> openmap =
-            new HashMap<Graph<VLabel, ELabel>.Vertex,
-                Calcvert<VLabel, ELabel>>();
-        double g = 0.0;
-        V0.getLabel().setWeight(g);
-        double f = g + h.dist(V0.getLabel(), V1.getLabel());
-        queue.add(new Calcvert<VLabel, ELabel>(V0, f, g));
-        openmap.put(V0, queue.peek());
+        return new PathSearch<VLabel, ELabel>(G, LABEL_WEIGHTS)
+            .search(V0, V1, h, LABEL_WEIGHTER);
+    }
 
-        while (!queue.isEmpty()) {
-            Calcvert<VLabel, ELabel> current = queue.poll();
-            openmap.remove(current.getVertex());
-            if (current.getVertex().equals(V1)) {
-                return constructor(current);
-            }
-            closedmap.put(current.getVertex(), current);
+    /** Returns a path from V0 to V1 in G of minimum weight, according to
+     *  the weights EWEIGHTER gives edge labels, or null if V1 is
+     *  unreachable from V0.  The search proceeds from both ends at once,
+     *  so that it usually settles far fewer vertices than shortestPath,
+     *  but H must meet the stronger conditions given for
+     *  PathSearch.bidirectionalShortestPath.  Unlike shortestPath, this
+     *  sets no vertex weights. */
+    public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(Graph<VLabel, ELabel> G,
+                              Graph<VLabel, ELabel>.Vertex V0,
+                              Graph<VLabel, ELabel>.Vertex V1,
+                              Distancer<? super VLabel> h,
+                              Weighting<? super ELabel> eweighter) {
+        return new PathSearch<VLabel, ELabel>(G, eweighter)
+            .bidirectionalShortestPath(V0, V1, h);
+    }
 
-            Iteration<Graph<VLabel, ELabel>.Edge> neighborEdges =
-                    G.outEdges(current.getVertex());
-            for (Graph<VLabel, ELabel>.Edge e : neighborEdges) {
-                Graph<VLabel, ELabel>.Vertex neighborVertices =
-                        e.getV(current.getVertex());
-                double tentativeg = current.getG() + e.getLabel().weight();
-                double tentativef = tentativeg + h.dist(
-                        neighborVertices.getLabel(), V1.getLabel());
-                if (closedmap.containsKey(neighborVertices)
-                        && tentativef >= closedmap.get(
-                                neighborVertices).getF()) {
-                    continue;
-                }
-                if (!openmap.containsKey(neighborVertices)
-                        || tentativef < openmap.get(
-                                neighborVertices).getF()) {
-                    Calcvert<VLabel, ELabel> neighbor = new
-                            Calcvert<VLabel, ELabel>(
-                                    neighborVertices, tentativef, tentativeg);
-                    neighborVertices.getLabel().setWeight(tentativeg);
-                    neighbor.setParent(e, current);
-                    if (openmap.containsKey(neighborVertices)) {
-                        queue.remove(openmap.get(neighborVertices));
+    /** Returns a tree of the shortest paths in G from V0 to every vertex
+     *  reachable from it, according to the weights EWEIGHTER gives edge
+     *  labels.  Use a PathSearch to make many trees of one graph, or to
+     *  stop once given target vertices are reached. */
+    public static <VLabel, ELabel> ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex V0,
+                     Weighting<? super ELabel> eweighter) {
+        return new PathSearch<VLabel, ELabel>(G, eweighter)
+            .shortestPathTree(V0);
+    }
+
+    /* Distance Matrices */
+
+    /** Returns the weights of shortest paths in G from each of SOURCES to
+     *  each of TARGETS, according to the weights EWEIGHTER gives edge
+     *  labels, searching the sources in parallel in the common fork-join
+     *  pool.  G must not be modified meanwhile; its labels are only
+     *  read.  See DistanceMatrix. */
+    public static <VLabel, ELabel> DistanceMatrix<VLabel, ELabel>
+    distanceMatrix(Graph<VLabel, ELabel> G,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> sources,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> targets,
+                   Weighting<? super ELabel> eweighter) {
+        return distanceMatrix(G, sources, targets, eweighter, false,
+                              ForkJoinPool.commonPool());
+    }
+
+    /** As for the four-argument distanceMatrix, but also keeping the
+     *  paths themselves iff PATHS, and searching with tasks in POOL. */
+    public static <VLabel, ELabel> DistanceMatrix<VLabel, ELabel>
+    distanceMatrix(Graph<VLabel, ELabel> G,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> sources,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> targets,
+                   Weighting<? super ELabel> eweighter, boolean paths,
+                   ForkJoinPool pool) {
+        return new DistanceMatrix<VLabel, ELabel>(G, sources, targets,
+                                                  eweighter, paths, pool);
+    }
+
+    /* Hop Paths */
+
+    /** Returns a path from V0 to V1 in G with the fewest edges, or null
+     *  if V1 is unreachable from V0.  The path is empty if V0 is V1.
+     *  Searches breadth-first from both ends at once, from V1 along
+     *  incoming edges, so that each search need only go half way.  Use a
+     *  HopSearch to answer many such queries on one graph, since it reuses
+     *  its storage from one query to the next. */
+    public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    hopPath(Graph<VLabel, ELabel> G,
+            Graph<VLabel, ELabel>.Vertex V0,
+            Graph<VLabel, ELabel>.Vertex V1) {
+        return new HopSearch<VLabel, ELabel>(G).hopPath(V0, V1);
+    }
+
+    /* Topological Ordering */
+
+    /** Returns the vertices of G in topological order: every edge leads
+     *  from a vertex to one later in the list.  Returns null if G has a
+     *  cycle (in an undirected graph, any edge is a cycle).  Takes time
+     *  proportional to the numbers of vertices and edges. */
+    public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Vertex>
+    topologicalSort(Graph<VLabel, ELabel> G) {
+        ArrayList<Graph<VLabel, ELabel>.Vertex> order =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>(G.vertexSize());
+        return kahn(G, order, null) ? order : null;
+    }
+
+    /** Returns the vertices of G in levels: level 0 holds the vertices
+     *  with no incoming edges, and level K + 1 those whose predecessors are
+     *  all in levels 0 .. K, with at least one in level K.  Thus there is
+     *  no path between two vertices in the same level, and every edge
+     *  leads to a later level, so the vertices of each level may be
+     *  processed in parallel once those of earlier levels are done.
+     *  Returns null if G has a cycle. */
+    public static <VLabel, ELabel> List<List<Graph<VLabel, ELabel>.Vertex>>
+    topologicalLevels(Graph<VLabel, ELabel> G) {
+        ArrayList<Graph<VLabel, ELabel>.Vertex> order =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>(G.vertexSize());
+        ArrayList<Integer> ends = new ArrayList<Integer>();
+        if (!kahn(G, order, ends)) {
+            return null;
+        }
+        List<List<Graph<VLabel, ELabel>.Vertex>> levels =
+            new ArrayList<List<Graph<VLabel, ELabel>.Vertex>>(ends.size());
+        int start = 0;
+        for (int end : ends) {
+            levels.add(new ArrayList<Graph<VLabel, ELabel>.Vertex>(
+                order.subList(start, end)));
+            start = end;
+        }
+        return levels;
+    }
+
+    /** Add the vertices of G to ORDER in topological order, a level (as
+     *  for topologicalLevels) at a time, by Kahn's algorithm.  If ENDS is
+     *  not null, add to it the index in ORDER just past each level.
+     *  Returns false iff G has a cycle, in which case ORDER holds only
+     *  the vertices not on or after one. */
+    private static <VLabel, ELabel> boolean
+    kahn(Graph<VLabel, ELabel> G,
+         ArrayList<Graph<VLabel, ELabel>.Vertex> order, List<Integer> ends) {
+        int[] pending = new int[G.vertexIdBound()];
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            pending[v.id()] = G.inDegree(v);
+            if (pending[v.id()] == 0) {
+                order.add(v);
+            }
+        }
+        int start = 0;
+        while (start < order.size()) {
+            int end = order.size();
+            for (int i = start; i < end; i += 1) {
+                Graph<VLabel, ELabel>.Vertex v = order.get(i);
+                int degree = G.outDegree(v);
+                for (int k = 0; k < degree; k += 1) {
+                    Graph<VLabel, ELabel>.Vertex w = G.outEdge(v, k).getV(v);
+                    pending[w.id()] -= 1;
+                    if (pending[w.id()] == 0) {
+                        order.add(w);
                     }
-                    queue.add(neighbor);
-                    openmap.put(neighborVertices, neighbor);
                 }
             }
+            if (ends != null) {
+                ends.add(end);
+            }
+            start = end;
         }
-        V1.getLabel().setWeight(Double.POSITIVE_INFINITY);
-        return null;
+        return order.size() == G.vertexSize();
     }
 
     /** Returns a distancer whose dist method always returns 0. */
@@ -199,58 +231,27 @@ public final class Graphs {
                 return 0.0;
             }
         };
-    /** Represents vertices with their calculated f and g scores. */
-    private static class Calcvert<VLabel, ELabel> implements
-        Comparable<Calcvert<VLabel, ELabel>> {
 
-        /** A new representation of the vertex VERT with FSCORE and GSCORE. */
-        Calcvert(Graph<VLabel, ELabel>.Vertex vert, double fscore,
-                double gscore) {
-            _vertex = vert;
-            _fscore = fscore;
-            _gscore = gscore;
-            _parentEdge = null;
-            _parentVertex = null;
-        }
-        @Override
-        public int compareTo(Calcvert<VLabel, ELabel> other) {
-            return Double.compare(this.getF(), other.getF());
-        }
-        /** Returns _vertex. */
-        Graph<VLabel, ELabel>.Vertex getVertex() {
-            return _vertex;
-        }
-        /** Returns _gscore. */
-        double getG() {
-            return _gscore;
-        }
-        /** Returns _fscore. */
-        double getF() {
-            return _fscore;
-        }
-        /** Sets _parentEdge to E and _parentVert to V. */
-        void setParent(Graph<VLabel, ELabel>.Edge e,
-                Calcvert<VLabel, ELabel> v) {
-            _parentEdge = e;
-            _parentVertex = v;
-        }
-        /** Returns _parentEdge. */
-        Graph<VLabel, ELabel>.Edge getParentEdge() {
-            return _parentEdge;
-        }
-        /** Returns _parentVert. */
-        Calcvert<VLabel, ELabel> getParentVert() {
-            return _parentVertex;
-        }
-        /** THIS vertex. */
-        private Graph<VLabel, ELabel>.Vertex _vertex;
-        /** The f value for THIS vertex. */
-        private double _fscore;
-        /** The g value for THIS vertex. */
-        private double _gscore;
-        /** The parent edge to THIS vertex. */
-        private Graph<VLabel, ELabel>.Edge _parentEdge;
-        /** The parent vertex to THIS vertex. */
-        private Calcvert<VLabel, ELabel> _parentVertex;
-    }
+    /** A Weighter that reads and sets the weights of Weightable labels. */
+    private static final Weighter<Weightable> LABEL_WEIGHTER =
+        new Weighter<Weightable>() {
+            @Override
+            public double weight(Weightable x) {
+                return x.weight();
+            }
+
+            @Override
+            public void setWeight(Weightable x, double v) {
+                x.setWeight(v);
+            }
+        };
+
+    /** A Weighting that returns the weight of a Weighted label. */
+    public static final Weighting<Weighted> LABEL_WEIGHTS =
+        new Weighting<Weighted>() {
+            @Override
+            public double weight(Weighted x) {
+                return x.weight();
+            }
+        };
 }
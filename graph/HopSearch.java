@@ -0,0 +1,170 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/** A reusable search for paths of fewest edges between two vertices of one
+ *  graph.  Each query grows a breadth-first frontier forward from the
+ *  start along outgoing edges and another backward from the goal along
+ *  incoming edges, always extending the smaller, and stops as soon as
+ *  they meet.  Since each side need only go about half way, this usually
+ *  examines far fewer vertices than a breadth-first search from the
+ *  start alone.  As with PathSearch, the state of a search is kept in the
+ *  HopSearch and reused from query to query, and the graph is only read.
+ *  @author Scott Lee
+ */
+public class HopSearch<VLabel, ELabel> {
+
+    /** A search over G. */
+    public HopSearch(Graph<VLabel, ELabel> G) {
+        _G = G;
+    }
+
+    /** Returns the graph I search. */
+    public Graph<VLabel, ELabel> graph() {
+        return _G;
+    }
+
+    /** Returns a path with the fewest edges from V0 to V1, or null if V1
+     *  is unreachable from V0.  The path is empty if V0 is V1. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    hopPath(Graph<VLabel, ELabel>.Vertex V0,
+            Graph<VLabel, ELabel>.Vertex V1) {
+        Graph<VLabel, ELabel>.Vertex meet = search(V0, V1);
+        if (meet == null) {
+            return null;
+        }
+        LinkedList<Graph<VLabel, ELabel>.Edge> path =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        for (Graph<VLabel, ELabel>.Vertex v = meet; v != V0; ) {
+            Graph<VLabel, ELabel>.Edge e = _forward[v.id()];
+            path.addFirst(e);
+            v = e.getV(v);
+        }
+        for (Graph<VLabel, ELabel>.Vertex v = meet; v != V1; ) {
+            Graph<VLabel, ELabel>.Edge e = _backward[v.id()];
+            path.addLast(e);
+            v = e.getV(v);
+        }
+        return path;
+    }
+
+    /** Returns the number of edges in hopPath(V0, V1), or -1 if V1 is
+     *  unreachable from V0. */
+    public int hops(Graph<VLabel, ELabel>.Vertex V0,
+                    Graph<VLabel, ELabel>.Vertex V1) {
+        Graph<VLabel, ELabel>.Vertex meet = search(V0, V1);
+        if (meet == null) {
+            return -1;
+        }
+        int count = 0;
+        for (Graph<VLabel, ELabel>.Vertex v = meet; v != V0; count += 1) {
+            v = _forward[v.id()].getV(v);
+        }
+        for (Graph<VLabel, ELabel>.Vertex v = meet; v != V1; count += 1) {
+            v = _backward[v.id()].getV(v);
+        }
+        return count;
+    }
+
+    /** Search from V0 forward and V1 backward until the two searches meet,
+     *  recording in _FORWARD and _BACKWARD the edge by which each vertex
+     *  was reached.  Returns the vertex where they meet, or null if they
+     *  do not.  The first meeting lies on a shortest path: if the sides
+     *  have gone A and B levels without meeting, every path is longer
+     *  than A + B edges, and one found while extending either side has
+     *  A + B + 1. */
+    private Graph<VLabel, ELabel>.Vertex
+    search(Graph<VLabel, ELabel>.Vertex V0, Graph<VLabel, ELabel>.Vertex V1) {
+        reset();
+        if (V0 == V1) {
+            return V0;
+        }
+        _forwardSeen[V0.id()] = _epoch;
+        _backwardSeen[V1.id()] = _epoch;
+        _ahead.clear();
+        _behind.clear();
+        _ahead.add(V0);
+        _behind.add(V1);
+        while (!_ahead.isEmpty() && !_behind.isEmpty()) {
+            Graph<VLabel, ELabel>.Vertex meet;
+            if (_ahead.size() <= _behind.size()) {
+                meet = expand(_ahead, true);
+            } else {
+                meet = expand(_behind, false);
+            }
+            if (meet != null) {
+                return meet;
+            }
+        }
+        return null;
+    }
+
+    /** Replace the vertices in FRONTIER by their unseen successors, if
+     *  FORWARD, and otherwise by their unseen predecessors, recording how
+     *  each was reached.  Returns the first new vertex already seen from
+     *  the other side, if any, and otherwise null. */
+    private Graph<VLabel, ELabel>.Vertex
+    expand(ArrayList<Graph<VLabel, ELabel>.Vertex> frontier,
+           boolean forward) {
+        int[] seen = forward ? _forwardSeen : _backwardSeen;
+        int[] other = forward ? _backwardSeen : _forwardSeen;
+        Graph<VLabel, ELabel>.Edge[] via = forward ? _forward : _backward;
+        int size = frontier.size();
+        for (int i = 0; i < size; i += 1) {
+            Graph<VLabel, ELabel>.Vertex v = frontier.get(i);
+            int degree = forward ? _G.outDegree(v) : _G.inDegree(v);
+            for (int k = 0; k < degree; k += 1) {
+                Graph<VLabel, ELabel>.Edge e =
+                    forward ? _G.outEdge(v, k) : _G.inEdge(v, k);
+                Graph<VLabel, ELabel>.Vertex w = e.getV(v);
+                if (seen[w.id()] == _epoch) {
+                    continue;
+                }
+                seen[w.id()] = _epoch;
+                via[w.id()] = e;
+                if (other[w.id()] == _epoch) {
+                    return w;
+                }
+                frontier.add(w);
+            }
+        }
+        frontier.subList(0, size).clear();
+        return null;
+    }
+
+    /** Prepare for a new search, making room for all vertices of my
+     *  graph. */
+    @SuppressWarnings("unchecked")
+    private void reset() {
+        int n = _G.vertexIdBound();
+        if (_forwardSeen == null || _forwardSeen.length < n) {
+            _forwardSeen = new int[n];
+            _backwardSeen = new int[n];
+            _forward = (Graph<VLabel, ELabel>.Edge[]) new Graph.Edge[n];
+            _backward = (Graph<VLabel, ELabel>.Edge[]) new Graph.Edge[n];
+            _epoch = 0;
+        }
+        _epoch += 1;
+    }
+
+    /** The graph I search. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The frontiers of the forward and backward searches. */
+    private final ArrayList<Graph<VLabel, ELabel>.Vertex>
+        _ahead = new ArrayList<Graph<VLabel, ELabel>.Vertex>(),
+        _behind = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+    /** The number of the current search. */
+    private int _epoch;
+    /** _FORWARDSEEN[id] is _EPOCH iff the vertex with that id has been
+     *  reached from the start in the current search, and likewise
+     *  _BACKWARDSEEN for the goal. */
+    private int[] _forwardSeen, _backwardSeen;
+    /** The edge by which each vertex reached from the start was reached,
+     *  indexed by id. */
+    private Graph<VLabel, ELabel>.Edge[] _forward;
+    /** The edge leading from each vertex reached from the goal toward the
+     *  goal, indexed by id. */
+    private Graph<VLabel, ELabel>.Edge[] _backward;
+}
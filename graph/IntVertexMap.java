@@ -0,0 +1,87 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A mapping from vertices to ints, stored in arrays indexed by vertex id
+ *  (see Graph.Vertex.id()).  Vertices that have not been given a value
+ *  map to a default value.  Lookups and updates take constant time
+ *  without boxing or hashing, and clear() takes constant time, so that
+ *  one map may be reused for many searches over a graph.  A map should
+ *  only hold vertices of one graph.
+ *  @author Scott Lee
+ */
+public class IntVertexMap {
+
+    /** An empty map whose default value is DEFAULTVALUE, with room for
+     *  vertices with ids less than N. */
+    public IntVertexMap(int n, int defaultValue) {
+        _values = new int[n];
+        _stamps = new int[n];
+        _default = defaultValue;
+    }
+
+    /** An empty map with room for all vertices of G, whose default value
+     *  is DEFAULTVALUE. */
+    public IntVertexMap(Graph<?, ?> g, int defaultValue) {
+        this(g.vertexIdBound(), defaultValue);
+    }
+
+    /** Returns the value of V, or the default value if it has none. */
+    public int get(Graph<?, ?>.Vertex v) {
+        return get(v.id());
+    }
+
+    /** Returns the value of the vertex with id ID, or the default value
+     *  if it has none. */
+    public int get(int id) {
+        if (id < _stamps.length && _stamps[id] == _epoch) {
+            return _values[id];
+        }
+        return _default;
+    }
+
+    /** Returns true iff V has been given a value since the last clear. */
+    public boolean containsKey(Graph<?, ?>.Vertex v) {
+        return containsKey(v.id());
+    }
+
+    /** Returns true iff the vertex with id ID has been given a value
+     *  since the last clear. */
+    public boolean containsKey(int id) {
+        return id < _stamps.length && _stamps[id] == _epoch;
+    }
+
+    /** Set the value of V to X. */
+    public void put(Graph<?, ?>.Vertex v, int x) {
+        put(v.id(), x);
+    }
+
+    /** Set the value of the vertex with id ID to X. */
+    public void put(int id, int x) {
+        if (id >= _stamps.length) {
+            int n = Math.max(id + 1, 2 * _stamps.length);
+            _values = Arrays.copyOf(_values, n);
+            _stamps = Arrays.copyOf(_stamps, n);
+        }
+        _values[id] = x;
+        _stamps[id] = _epoch;
+    }
+
+    /** Remove all values from me, keeping my storage. */
+    public void clear() {
+        _epoch += 1;
+        if (_epoch == 0) {
+            Arrays.fill(_stamps, 0);
+            _epoch = 1;
+        }
+    }
+
+    /** Values, indexed by vertex id. */
+    private int[] _values;
+    /** _VALUES[I] is valid iff _STAMPS[I] == _EPOCH. */
+    private int[] _stamps;
+    /** Stamp of values set since the last clear. */
+    private int _epoch = 1;
+    /** The value of vertices not in me. */
+    private final int _default;
+}
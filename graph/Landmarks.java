@@ -0,0 +1,204 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/** Lower bounds on the weights of shortest paths in one graph, for use
+ *  as the heuristic of an A* search ("ALT").  A Landmarks holds the
+ *  weights of shortest paths to and from each of a few landmark vertices,
+ *  and bounds the weight of a shortest path from u to v by the triangle
+ *  inequality: it is at least d(L, v) - d(L, u) and d(u, L) - d(v, L) for
+ *  every landmark L.  The bound depends only on the structure of the
+ *  graph, not on any geometry, so it works for graphs without
+ *  coordinates, and it is usually much tighter than straight-line
+ *  distance on winding roads.  It is consistent at every vertex that can
+ *  reach the goal, which is all that Graphs.shortestPath requires.
+ *
+ *  As a Distancer, a Landmarks takes vertex labels, which it maps back to
+ *  their vertices by identity.  For a label shared by several vertices,
+ *  or for one not in the graph, it gives 0.  PathSearch recognizes a
+ *  Landmarks of the graph it searches and asks it by vertex id instead,
+ *  skipping that mapping.  Its tables describe the graph as it was when
+ *  they were made, and are never changed afterwards, so it may be shared
+ *  among threads.
+ *  @author Scott Lee
+ */
+public class Landmarks<VLabel, ELabel> implements Distancer<VLabel> {
+
+    /** Landmarks for G, whose edge weights are given by EWEIGHTER, at K
+     *  distinct vertices chosen farthest-first: each is a vertex as far as
+     *  possible from those chosen before it (preferring one unreachable
+     *  from them), the first being farthest from an arbitrary vertex.  Throws
+     *  IllegalArgumentException unless 0 <= K <= G.vertexSize(). */
+    public Landmarks(Graph<VLabel, ELabel> G,
+                     Weighting<? super ELabel> eweighter, int k) {
+        this(G, eweighter, k, null);
+    }
+
+    /** Landmarks for G, whose edge weights are given by EWEIGHTER, at the
+     *  vertices LANDMARKS.  Throws IllegalArgumentException if there are
+     *  more of them than vertices of G. */
+    public Landmarks(Graph<VLabel, ELabel> G,
+                     Weighting<? super ELabel> eweighter,
+                     Collection<? extends Graph<VLabel, ELabel>.Vertex>
+                     landmarks) {
+        this(G, eweighter, landmarks.size(), landmarks);
+    }
+
+    /** Landmarks for G, whose edge weights are given by EWEIGHTER, at the
+     *  vertices LANDMARKS, of which there must be K, or, if that is null,
+     *  at K vertices chosen farthest-first. */
+    private Landmarks(Graph<VLabel, ELabel> G,
+                      Weighting<? super ELabel> eweighter, int k,
+                      Collection<? extends Graph<VLabel, ELabel>.Vertex>
+                      landmarks) {
+        if (k < 0) {
+            throw new IllegalArgumentException("negative landmark count");
+        } else if (k > G.vertexSize()) {
+            throw new IllegalArgumentException("more landmarks than vertices");
+        } else if (landmarks != null && landmarks.size() != k) {
+            throw new IllegalArgumentException("wrong landmark count");
+        }
+        _G = G;
+        _ids = new IdentityHashMap<VLabel, Integer>();
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _ids.put(v.getLabel(),
+                     _ids.containsKey(v.getLabel()) ? -1 : v.id());
+        }
+        int n = G.vertexIdBound();
+        _k = k;
+        _from = new double[n * k];
+        _to = new double[n * k];
+        _landmarks = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+        if (k == 0) {
+            return;
+        }
+        PathSearch<VLabel, ELabel> search =
+            new PathSearch<VLabel, ELabel>(G, eweighter);
+        double[] nearest = new double[n];
+        BitVertexSet taken = new BitVertexSet(n);
+        List<Graph<VLabel, ELabel>.Vertex> chosen = null;
+        Graph<VLabel, ELabel>.Vertex next = null;
+        if (landmarks != null) {
+            chosen = new ArrayList<Graph<VLabel, ELabel>.Vertex>(landmarks);
+        } else {
+            next = farthest(search.shortestPathTree(
+                                G.vertices().iterator().next()), null, taken);
+        }
+        for (int i = 0; i < k; i += 1) {
+            if (chosen != null) {
+                next = chosen.get(i);
+            }
+            _landmarks.add(next);
+            taken.add(next);
+            ShortestPathTree<VLabel, ELabel> from =
+                search.shortestPathTree(next),
+                to = G.isDirected() ? search.reverseShortestPathTree(next)
+                : from;
+            for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+                int id = v.id();
+                _from[id * k + i] = from.distance(v);
+                _to[id * k + i] = to.distance(v);
+                if (i == 0 || from.distance(v) < nearest[id]) {
+                    nearest[id] = from.distance(v);
+                }
+            }
+            if (chosen == null && i + 1 < k) {
+                next = farthest(null, nearest, taken);
+            }
+        }
+    }
+
+    /** Returns the graph I describe. */
+    public Graph<VLabel, ELabel> graph() {
+        return _G;
+    }
+
+    /** Returns my landmarks, in order of choice. */
+    public List<Graph<VLabel, ELabel>.Vertex> landmarks() {
+        return Collections.unmodifiableList(_landmarks);
+    }
+
+    /** Returns a lower bound on the weight of a shortest path from the
+     *  vertex labeled V0 to the one labeled V1, or 0 if either label
+     *  does not identify a single vertex of my graph. */
+    @Override
+    public double dist(VLabel v0, VLabel v1) {
+        Integer id0 = _ids.get(v0), id1 = _ids.get(v1);
+        if (id0 == null || id1 == null || id0 < 0 || id1 < 0) {
+            return 0.0;
+        }
+        return bound(id0, id1);
+    }
+
+    /** Returns a lower bound on the weight of a shortest path from V0 to
+     *  V1. */
+    public double distance(Graph<VLabel, ELabel>.Vertex v0,
+                           Graph<VLabel, ELabel>.Vertex v1) {
+        return bound(v0.id(), v1.id());
+    }
+
+    /** Returns the greatest bound given by any landmark on the weight of
+     *  a shortest path from the vertex with id U to the one with id V.
+     *  Table entries for landmarks that cannot reach or be reached from
+     *  a vertex are infinite, and bounds using them are skipped: they are
+     *  either useless or would make the bound infinite for a vertex that
+     *  cannot reach V, which is correct but would disturb callers that
+     *  combine bounds arithmetically. */
+    double bound(int u, int v) {
+        double best = 0.0;
+        int iu = u * _k, iv = v * _k;
+        for (int i = 0; i < _k; i += 1) {
+            double fu = _from[iu + i], fv = _from[iv + i],
+                tu = _to[iu + i], tv = _to[iv + i];
+            if (fv != Double.POSITIVE_INFINITY
+                && fu != Double.POSITIVE_INFINITY && fv - fu > best) {
+                best = fv - fu;
+            }
+            if (tu != Double.POSITIVE_INFINITY
+                && tv != Double.POSITIVE_INFINITY && tu - tv > best) {
+                best = tu - tv;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the vertex of my graph not in TAKEN that is farthest from
+     *  the root of TREE, or, if TREE is null, the one whose entry in
+     *  NEAREST (indexed by id) is greatest.  Infinite distances count as
+     *  farthest.  Vertices in TAKEN are skipped even when every other
+     *  distance is 0, as it is when zero-weight edges join them. */
+    private Graph<VLabel, ELabel>.Vertex
+    farthest(ShortestPathTree<VLabel, ELabel> tree, double[] nearest,
+             BitVertexSet taken) {
+        Graph<VLabel, ELabel>.Vertex far = null;
+        double most = -1.0;
+        for (Graph<VLabel, ELabel>.Vertex v : _G.vertices()) {
+            if (taken.contains(v)) {
+                continue;
+            }
+            double d = tree == null ? nearest[v.id()] : tree.distance(v);
+            if (d > most) {
+                far = v;
+                most = d;
+            }
+        }
+        return far;
+    }
+
+    /** The graph I describe. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The id of the vertex with each label, or -1 if several have it. */
+    private final IdentityHashMap<VLabel, Integer> _ids;
+    /** The number of landmarks. */
+    private final int _k;
+    /** The landmarks, in order of choice. */
+    private final ArrayList<Graph<VLabel, ELabel>.Vertex> _landmarks;
+    /** _FROM[id * _K + i] is the weight of a shortest path from landmark
+     *  i to the vertex with that id, and _TO[id * _K + i] that of one from
+     *  the vertex to the landmark (infinite if there is none). */
+    private final double[] _from, _to;
+}
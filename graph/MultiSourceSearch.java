@@ -0,0 +1,162 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** A breadth-first search of one graph from many sources at once.  The
+ *  sources are taken in batches of 64, and each batch is searched in a
+ *  single sweep over the graph: every vertex carries a 64-bit mask of the
+ *  sources in the batch that have reached it, so that one pass over an
+ *  edge advances all of those sources together.  Afterwards, one may ask
+ *  which vertices each source reaches and, if requested, in how many
+ *  edges.  The graph is only read, so as with PathSearch, several
+ *  MultiSourceSearches may share a graph that nothing modifies.
+ *  @author Scott Lee
+ */
+public class MultiSourceSearch<VLabel, ELabel> {
+
+    /** A search over G. */
+    public MultiSourceSearch(Graph<VLabel, ELabel> G) {
+        _G = G;
+    }
+
+    /** Returns the graph I search. */
+    public Graph<VLabel, ELabel> graph() {
+        return _G;
+    }
+
+    /** Search breadth-first from each of SOURCES along outgoing edges.  If
+     *  HOPS, also record the number of edges from each source to each
+     *  vertex it reaches (which takes an int per source per vertex).
+     *  Afterwards, source K is SOURCES.get(K) in reaches, reached, and
+     *  hops. */
+    public void search(List<? extends Graph<VLabel, ELabel>.Vertex> sources,
+                       boolean hops) {
+        int n = _G.vertexIdBound(), count = sources.size();
+        Graph<VLabel, ELabel>.Vertex[] byId = newVertexArray(n);
+        for (Graph<VLabel, ELabel>.Vertex v : _G.vertices()) {
+            byId[v.id()] = v;
+        }
+        _sources = count;
+        _seen = new long[(count + 63) >>> 6][];
+        _hops = hops ? new int[count][] : null;
+        long[] visit = new long[n], next = new long[n];
+        int[] active = new int[n], found = new int[n];
+        for (int b = 0; b < _seen.length; b += 1) {
+            long[] seen = _seen[b] = new long[n];
+            int lo = b << 6, hi = Math.min(count, lo + 64);
+            int size = 0;
+            for (int k = lo; k < hi; k += 1) {
+                int id = sources.get(k).id();
+                long bit = 1L << (k - lo);
+                if (visit[id] == 0) {
+                    active[size] = id;
+                    size += 1;
+                }
+                visit[id] |= bit;
+                seen[id] |= bit;
+                if (hops) {
+                    _hops[k] = new int[n];
+                    Arrays.fill(_hops[k], -1);
+                    _hops[k][id] = 0;
+                }
+            }
+            for (int depth = 1; size > 0; depth += 1) {
+                int nextSize = 0;
+                for (int j = 0; j < size; j += 1) {
+                    int id = active[j];
+                    Graph<VLabel, ELabel>.Vertex v = byId[id];
+                    long bits = visit[id];
+                    visit[id] = 0;
+                    int degree = _G.outDegree(v);
+                    for (int k = 0; k < degree; k += 1) {
+                        int w = _G.outEdge(v, k).getV(v).id();
+                        long fresh = bits & ~seen[w];
+                        if (fresh == 0) {
+                            continue;
+                        }
+                        if (next[w] == 0) {
+                            found[nextSize] = w;
+                            nextSize += 1;
+                        }
+                        next[w] |= fresh;
+                        seen[w] |= fresh;
+                        if (hops) {
+                            record(fresh, lo, w, depth);
+                        }
+                    }
+                }
+                long[] visited = visit;
+                visit = next;
+                next = visited;
+                int[] expanded = active;
+                active = found;
+                found = expanded;
+                size = nextSize;
+            }
+        }
+    }
+
+    /** Returns the number of sources in the last search. */
+    public int sources() {
+        return _sources;
+    }
+
+    /** Returns true iff source K of the last search reached V. */
+    public boolean reaches(int k, Graph<VLabel, ELabel>.Vertex v) {
+        long[] seen = _seen[k >>> 6];
+        return v.id() < seen.length && (seen[v.id()] & (1L << k)) != 0;
+    }
+
+    /** Returns the set of vertices reached by source K of the last
+     *  search, including the source itself. */
+    public BitVertexSet reached(int k) {
+        long[] seen = _seen[k >>> 6];
+        long bit = 1L << k;
+        BitVertexSet result = new BitVertexSet(seen.length);
+        for (int id = 0; id < seen.length; id += 1) {
+            if ((seen[id] & bit) != 0) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the number of edges on a shortest path from source K of the
+     *  last search to V, or -1 if it did not reach V.  The last search
+     *  must have recorded hops. */
+    public int hops(int k, Graph<VLabel, ELabel>.Vertex v) {
+        if (_hops == null) {
+            throw new IllegalStateException("hops were not recorded");
+        }
+        int[] hops = _hops[k];
+        return v.id() < hops.length ? hops[v.id()] : -1;
+    }
+
+    /** Record that the sources LO + i of the current batch, for each bit i
+     *  in FRESH, reach the vertex with id W in DEPTH edges. */
+    private void record(long fresh, int lo, int w, int depth) {
+        while (fresh != 0) {
+            _hops[lo + Long.numberOfTrailingZeros(fresh)][w] = depth;
+            fresh &= fresh - 1;
+        }
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex[] newVertexArray(int n) {
+        return (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** The graph I search. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The number of sources in the last search. */
+    private int _sources;
+    /** For each batch of 64 sources of the last search, the mask of
+     *  sources in the batch that reached each vertex, indexed by id. */
+    private long[][] _seen;
+    /** For each source of the last search, the hop count to each vertex,
+     *  indexed by id, or -1 where it was not reached.  Null if hops were
+     *  not recorded. */
+    private int[][] _hops;
+}
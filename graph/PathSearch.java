@@ -0,0 +1,426 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+/** A reusable A* search over one graph.  All the state of a search (the
+ *  fringe, the best known distance to each vertex and the edge by which
+ *  it was reached) is kept in the PathSearch, and the graph and its labels
+ *  are only read, never changed.  Thus any number of PathSearches may
+ *  query the same graph concurrently, one per thread, as long as nothing
+ *  modifies the graph meanwhile.  A single PathSearch is not safe for
+ *  use by several threads at once.  Its storage is kept between queries,
+ *  so that reusing one for many queries does little allocation.  Besides
+ *  single paths, a PathSearch can find a ShortestPathTree of the paths
+ *  from one vertex to all others, or to a given set of them.
+ *  @author Scott Lee
+ */
+public class PathSearch<VLabel, ELabel> {
+
+    /** A search over G, whose edge weights are given by EWEIGHTER. */
+    public PathSearch(Graph<VLabel, ELabel> G,
+                      Weighting<? super ELabel> eweighter) {
+        _G = G;
+        _eweighter = eweighter;
+        _fringe = new VertexHeap<VLabel, ELabel>(G);
+        _dist = new DoubleVertexMap(G, Double.POSITIVE_INFINITY);
+    }
+
+    /** Returns the graph I search. */
+    public Graph<VLabel, ELabel> graph() {
+        return _G;
+    }
+
+    /** Returns a path from V0 to V1 of minimum weight, or null if V1 is
+     *  unreachable from V0.  H must satisfy the conditions given for
+     *  Graphs.shortestPath.  Afterwards, distance(v) is the weight of a
+     *  minimal path from V0 to v for each v on the returned path and for
+     *  each v such that
+     *       minimum path length from V0 to v + H.dist(v, V1)
+     *              < minimum path length from V0 to V1. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1,
+                 Distancer<? super VLabel> h) {
+        return search(V0, V1, h, null);
+    }
+
+    /** Returns the weight of the shortest path found by the last search
+     *  from its starting vertex to V, as described for shortestPath.  It
+     *  is Double.POSITIVE_INFINITY for vertices the search did not
+     *  reach. */
+    public double distance(Graph<VLabel, ELabel>.Vertex v) {
+        return _dist.get(v);
+    }
+
+    /** Returns a path from V0 to V1 of minimum weight, or null if V1 is
+     *  unreachable from V0, as for shortestPath, but found by searching
+     *  forward from V0 along outgoing edges and backward from V1 along
+     *  incoming edges together until the two searches meet.  Each is an
+     *  A* search guided by the average of H's estimate of the distance
+     *  to V1 and its estimate of the distance from V0, which keeps the two
+     *  consistent with each other.  For this, H must be a consistent
+     *  lower bound on distances between any two vertices, not just to
+     *  V1: for every edge (u, v) of weight w and every vertex x,
+     *       H.dist(u, x) <= w + H.dist(v, x), and
+     *       H.dist(x, v) <= H.dist(x, u) + w,
+     *  as is true of straight-line distance when no edge is shorter than
+     *  the line between its ends.  With Graphs.ZERO_DISTANCER, this is a
+     *  bidirectional Dijkstra search.  Afterwards, distance(v) is defined
+     *  only for the vertices on the returned path. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                              Graph<VLabel, ELabel>.Vertex V1,
+                              Distancer<? super VLabel> h) {
+        reset();
+        _bounds = landmarksOf(h);
+        if (_backFringe == null) {
+            _backFringe = new VertexHeap<VLabel, ELabel>(_G);
+            _backDist = new DoubleVertexMap(_G, Double.POSITIVE_INFINITY);
+            _potential = new DoubleVertexMap(_G, 0.0);
+        }
+        _backFringe.clear();
+        _backDist.clear();
+        _potential.clear();
+        if (_backParents == null || _backParents.length < _parents.length) {
+            _backParents = newEdgeArray(_parents.length);
+        }
+        _dist.put(V0, 0.0);
+        _backDist.put(V1, 0.0);
+        _fringe.add(V0, potential(V0, V0, V1, h));
+        _backFringe.add(V1, -potential(V1, V0, V1, h));
+        double best = V0 == V1 ? 0.0 : Double.POSITIVE_INFINITY;
+        Graph<VLabel, ELabel>.Vertex meet = V0 == V1 ? V0 : null;
+        while (!_fringe.isEmpty() && !_backFringe.isEmpty()
+               && _fringe.peekKey() + _backFringe.peekKey() < best) {
+            boolean forward = _fringe.size() <= _backFringe.size();
+            VertexHeap<VLabel, ELabel> fringe =
+                forward ? _fringe : _backFringe;
+            DoubleVertexMap dist = forward ? _dist : _backDist;
+            DoubleVertexMap other = forward ? _backDist : _dist;
+            Graph<VLabel, ELabel>.Edge[] parents =
+                forward ? _parents : _backParents;
+            Graph<VLabel, ELabel>.Vertex current = fringe.poll();
+            double g = dist.get(current);
+            int degree = forward ? _G.outDegree(current)
+                : _G.inDegree(current);
+            for (int k = 0; k < degree; k += 1) {
+                Graph<VLabel, ELabel>.Edge e = forward
+                    ? _G.outEdge(current, k) : _G.inEdge(current, k);
+                Graph<VLabel, ELabel>.Vertex neighbor = e.getV(current);
+                double tentativeg = g + _eweighter.weight(e.getLabel());
+                if (tentativeg < dist.get(neighbor)) {
+                    dist.put(neighbor, tentativeg);
+                    parents[neighbor.id()] = e;
+                    double p = potential(neighbor, V0, V1, h);
+                    fringe.add(neighbor, forward ? tentativeg + p
+                               : tentativeg - p);
+                    double through = tentativeg + other.get(neighbor);
+                    if (through < best) {
+                        best = through;
+                        meet = neighbor;
+                    }
+                }
+            }
+        }
+        if (meet == null) {
+            return null;
+        }
+        LinkedList<Graph<VLabel, ELabel>.Edge> answer =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        for (Graph<VLabel, ELabel>.Vertex v = meet; v != V0; ) {
+            Graph<VLabel, ELabel>.Edge e = _parents[v.id()];
+            answer.addFirst(e);
+            v = e.getV(v);
+        }
+        for (Graph<VLabel, ELabel>.Vertex v = meet; v != V1; ) {
+            Graph<VLabel, ELabel>.Edge e = _backParents[v.id()];
+            answer.addLast(e);
+            v = e.getV(v);
+            _dist.put(v, best - _backDist.get(v));
+        }
+        return answer;
+    }
+
+    /** Returns the forward potential of V in a bidirectional search from V0
+     *  to V1 guided by H: half the difference between H's estimates of the
+     *  distance from V to V1 and from V0 to V.  The backward potential is
+     *  its negation.  Potentials are computed once per search. */
+    private double potential(Graph<VLabel, ELabel>.Vertex v,
+                             Graph<VLabel, ELabel>.Vertex V0,
+                             Graph<VLabel, ELabel>.Vertex V1,
+                             Distancer<? super VLabel> h) {
+        if (_potential.containsKey(v)) {
+            return _potential.get(v);
+        }
+        double p = 0.5 * (estimate(h, v, V1) - estimate(h, V0, v));
+        _potential.put(v, p);
+        return p;
+    }
+
+    /** Search from V0 until each of TARGETS that is reachable from V0 is
+     *  settled, as shortestPathTree(V0, TARGETS) does, but keeping the
+     *  results in my own storage rather than in a new tree, so that
+     *  repeated searches allocate nothing in proportion to the graph.
+     *  Afterwards, distance(v) is the weight of a shortest path from V0 to
+     *  each v in TARGETS (Double.POSITIVE_INFINITY if there is none), and
+     *  path(v) is such a path. */
+    public void searchTargets(Graph<VLabel, ELabel>.Vertex V0,
+                              Collection<? extends Graph<VLabel, ELabel>.Vertex>
+                              targets) {
+        reset();
+        _start = V0;
+        for (Graph<VLabel, ELabel>.Vertex v : targets) {
+            _wanted.add(v);
+        }
+        _dist.put(V0, 0.0);
+        _fringe.add(V0, 0.0);
+        while (_wanted.size() > 0 && !_fringe.isEmpty()) {
+            Graph<VLabel, ELabel>.Vertex current = _fringe.poll();
+            _wanted.remove(current);
+            double g = _dist.get(current);
+            int degree = _G.outDegree(current);
+            for (int k = 0; k < degree; k += 1) {
+                Graph<VLabel, ELabel>.Edge e = _G.outEdge(current, k);
+                Graph<VLabel, ELabel>.Vertex neighbor = e.getV(current);
+                double tentativeg = g + _eweighter.weight(e.getLabel());
+                if (tentativeg < _dist.get(neighbor)) {
+                    _dist.put(neighbor, tentativeg);
+                    _parents[neighbor.id()] = e;
+                    _fringe.add(neighbor, tentativeg);
+                }
+            }
+        }
+        for (Graph<VLabel, ELabel>.Vertex v : targets) {
+            _wanted.remove(v);
+        }
+    }
+
+    /** Returns a shortest path to V from the start of the last call of
+     *  searchTargets, which must have had V among its targets, or null if
+     *  there is none.  The path is empty if V is the start.  Throws
+     *  IllegalStateException if the last search was of another kind. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    path(Graph<VLabel, ELabel>.Vertex v) {
+        if (_start == null) {
+            throw new IllegalStateException("no searchTargets results");
+        }
+        return _dist.get(v) == Double.POSITIVE_INFINITY ? null
+            : pathTo(_start, v);
+    }
+
+    /** Returns a tree of shortest paths from V0 to every vertex reachable
+     *  from it.  This does not affect distance. */
+    public ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel>.Vertex V0) {
+        return tree(V0, null, false);
+    }
+
+    /** Returns a tree of shortest paths from V0 that reaches each of
+     *  TARGETS that is reachable from V0, stopping the search as soon as
+     *  the last of them is settled.  The tree may reach other vertices as
+     *  well: those settled before the last target.  This does not affect
+     *  distance. */
+    public ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel>.Vertex V0,
+                     Collection<? extends Graph<VLabel, ELabel>.Vertex>
+                     targets) {
+        return tree(V0, targets, false);
+    }
+
+    /** Returns a tree of shortest paths to V1 from every vertex that can
+     *  reach it, found by searching backward along incoming edges.  This
+     *  does not affect distance. */
+    public ShortestPathTree<VLabel, ELabel>
+    reverseShortestPathTree(Graph<VLabel, ELabel>.Vertex V1) {
+        return tree(V1, null, true);
+    }
+
+    /** Returns a tree of shortest paths from ROOT (to ROOT, along incoming
+     *  edges, if REVERSE), found by Dijkstra's algorithm, settling vertices
+     *  until all of TARGETS are settled or, if TARGETS is null, until no
+     *  more can be reached. */
+    private ShortestPathTree<VLabel, ELabel>
+    tree(Graph<VLabel, ELabel>.Vertex root,
+         Collection<? extends Graph<VLabel, ELabel>.Vertex> targets,
+         boolean reverse) {
+        int n = _G.vertexIdBound();
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Graph<VLabel, ELabel>.Edge[] parents = newEdgeArray(n);
+        int remaining = -1;
+        BitVertexSet wanted = null;
+        if (targets != null) {
+            wanted = new BitVertexSet(n);
+            remaining = 0;
+            for (Graph<VLabel, ELabel>.Vertex v : targets) {
+                if (wanted.add(v)) {
+                    remaining += 1;
+                }
+            }
+        }
+        _fringe.clear();
+        dist[root.id()] = 0.0;
+        _fringe.add(root, 0.0);
+        while (remaining != 0 && !_fringe.isEmpty()) {
+            Graph<VLabel, ELabel>.Vertex current = _fringe.poll();
+            if (wanted != null && wanted.contains(current)) {
+                remaining -= 1;
+            }
+            double g = dist[current.id()];
+            int degree = reverse ? _G.inDegree(current)
+                : _G.outDegree(current);
+            for (int k = 0; k < degree; k += 1) {
+                Graph<VLabel, ELabel>.Edge e = reverse
+                    ? _G.inEdge(current, k) : _G.outEdge(current, k);
+                Graph<VLabel, ELabel>.Vertex neighbor = e.getV(current);
+                double tentativeg = g + _eweighter.weight(e.getLabel());
+                if (tentativeg < dist[neighbor.id()]) {
+                    dist[neighbor.id()] = tentativeg;
+                    parents[neighbor.id()] = e;
+                    _fringe.add(neighbor, tentativeg);
+                }
+            }
+        }
+        while (!_fringe.isEmpty()) {
+            int id = _fringe.poll().id();
+            dist[id] = Double.POSITIVE_INFINITY;
+            parents[id] = null;
+        }
+        return new ShortestPathTree<VLabel, ELabel>(root, reverse, dist,
+                                                    parents);
+    }
+
+    /** Perform shortestPath(V0, V1, H), and if VWEIGHTER is not null, also
+     *  use it to set the weight of each vertex whenever its distance
+     *  changes, and to set the weight of V1 to Double.POSITIVE_INFINITY
+     *  if it is unreachable. */
+    List<Graph<VLabel, ELabel>.Edge>
+    search(Graph<VLabel, ELabel>.Vertex V0,
+           Graph<VLabel, ELabel>.Vertex V1,
+           Distancer<? super VLabel> h,
+           Weighter<? super VLabel> vweighter) {
+        reset();
+        _bounds = landmarksOf(h);
+        _dist.put(V0, 0.0);
+        if (vweighter != null) {
+            vweighter.setWeight(V0.getLabel(), 0.0);
+        }
+        _fringe.add(V0, estimate(h, V0, V1));
+
+        while (!_fringe.isEmpty()) {
+            Graph<VLabel, ELabel>.Vertex current = _fringe.poll();
+            if (current == V1) {
+                return pathTo(V0, V1);
+            }
+            double g = _dist.get(current);
+            int degree = _G.outDegree(current);
+            for (int k = 0; k < degree; k += 1) {
+                Graph<VLabel, ELabel>.Edge e = _G.outEdge(current, k);
+                Graph<VLabel, ELabel>.Vertex neighbor = e.getV(current);
+                double tentativeg = g + _eweighter.weight(e.getLabel());
+                if (tentativeg < _dist.get(neighbor)) {
+                    _dist.put(neighbor, tentativeg);
+                    _parents[neighbor.id()] = e;
+                    if (vweighter != null) {
+                        vweighter.setWeight(neighbor.getLabel(), tentativeg);
+                    }
+                    _fringe.add(neighbor, tentativeg
+                                + estimate(h, neighbor, V1));
+                }
+            }
+        }
+        if (vweighter != null) {
+            vweighter.setWeight(V1.getLabel(), Double.POSITIVE_INFINITY);
+        }
+        return null;
+    }
+
+    /** Returns H's estimate of the distance from V0 to V1.  When H is
+     *  _BOUNDS, it is asked by vertex id, sparing it the mapping of labels
+     *  back to vertices. */
+    private double estimate(Distancer<? super VLabel> h,
+                            Graph<VLabel, ELabel>.Vertex v0,
+                            Graph<VLabel, ELabel>.Vertex v1) {
+        if (_bounds != null) {
+            return _bounds.bound(v0.id(), v1.id());
+        }
+        return h.dist(v0.getLabel(), v1.getLabel());
+    }
+
+    /** Returns H if it is a Landmarks of my graph, and otherwise null. */
+    private Landmarks<?, ?> landmarksOf(Distancer<?> h) {
+        if (h instanceof Landmarks && ((Landmarks<?, ?>) h).graph() == _G) {
+            return (Landmarks<?, ?>) h;
+        }
+        return null;
+    }
+
+    /** Returns the list of edges on the path from V0 to V1 recorded in
+     *  _PARENTS by the last search. */
+    private List<Graph<VLabel, ELabel>.Edge>
+    pathTo(Graph<VLabel, ELabel>.Vertex V0, Graph<VLabel, ELabel>.Vertex V1) {
+        LinkedList<Graph<VLabel, ELabel>.Edge> answer =
+                new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        for (Graph<VLabel, ELabel>.Vertex v = V1; v != V0;) {
+            Graph<VLabel, ELabel>.Edge e = _parents[v.id()];
+            answer.addFirst(e);
+            v = e.getV(v);
+        }
+        return answer;
+    }
+
+    /** Discard the results of the last search, and make sure there is
+     *  room for all vertices of my graph. */
+    private void reset() {
+        _start = null;
+        _fringe.clear();
+        _dist.clear();
+        if (_parents == null || _parents.length < _G.vertexIdBound()) {
+            _parents = newEdgeArray(_G.vertexIdBound());
+        }
+    }
+
+    /** Returns a new array of N edges. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Edge[] newEdgeArray(int n) {
+        return (Graph<VLabel, ELabel>.Edge[]) new Graph.Edge[n];
+    }
+
+    /** The graph I search. */
+    private final Graph<VLabel, ELabel> _G;
+    /** Supplies the weights of edge labels. */
+    private final Weighting<? super ELabel> _eweighter;
+    /** Vertices whose distances have been lowered but whose edges have not
+     *  been examined since, ordered by estimated total path length. */
+    private final VertexHeap<VLabel, ELabel> _fringe;
+    /** Best known distances from the starting vertex. */
+    private final DoubleVertexMap _dist;
+    /** Maps the id of each vertex V reached by the last search, other than
+     *  its start, to the last edge of the best known path to V.  Entries
+     *  for other vertices are stale. */
+    private Graph<VLabel, ELabel>.Edge[] _parents;
+    /** The heuristic of the current A* search, if it is a Landmarks of _G,
+     *  and otherwise null. */
+    private Landmarks<?, ?> _bounds;
+    /** The start of the last search, if it was made by searchTargets, and
+     *  otherwise null. */
+    private Graph<VLabel, ELabel>.Vertex _start;
+    /** The targets of a searchTargets call not yet settled.  Empty
+     *  between calls. */
+    private final BitVertexSet _wanted = new BitVertexSet();
+    /** The fringe of the backward half of a bidirectional search, ordered
+     *  by distance to the goal less the forward potential. */
+    private VertexHeap<VLabel, ELabel> _backFringe;
+    /** Best known distances to the goal of a bidirectional search. */
+    private DoubleVertexMap _backDist;
+    /** The forward potential of each vertex in a bidirectional search, as
+     *  far as it has been needed. */
+    private DoubleVertexMap _potential;
+    /** For each vertex reached by the backward half of a bidirectional
+     *  search, other than its goal, the first edge of the best known path
+     *  from it to the goal, indexed by id. */
+    private Graph<VLabel, ELabel>.Edge[] _backParents;
+}
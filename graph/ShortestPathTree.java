@@ -0,0 +1,92 @@
+package graph;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/** The result of a one-to-all or one-to-many shortest-path search of a
+ *  graph from a root vertex: for each vertex the search settled, the
+ *  weight of a shortest path between it and the root and the edge by
+ *  which that path reaches it.  These are held in arrays indexed by
+ *  vertex id, so that any number of paths may be read off after a single
+ *  search.  In a forward tree, paths lead from the root along outgoing
+ *  edges; in a reverse tree, they lead to the root.  A tree describes the
+ *  graph as it was when it was made, and is never changed afterwards, so
+ *  it may be shared among threads.  See PathSearch.shortestPathTree.
+ *  @author Scott Lee
+ */
+public class ShortestPathTree<VLabel, ELabel> {
+
+    /** A tree rooted at ROOT, forward unless REVERSE, in which the
+     *  vertex with id i lies at distance DIST[i] (infinite if not
+     *  settled) from or to the root, reached by edge PARENTS[i] (null for
+     *  the root and for vertices not settled). */
+    ShortestPathTree(Graph<VLabel, ELabel>.Vertex root, boolean reverse,
+                     double[] dist, Graph<VLabel, ELabel>.Edge[] parents) {
+        _root = root;
+        _reverse = reverse;
+        _dist = dist;
+        _parents = parents;
+    }
+
+    /** Returns my root. */
+    public Graph<VLabel, ELabel>.Vertex root() {
+        return _root;
+    }
+
+    /** Returns true iff my paths lead to my root rather than from it. */
+    public boolean isReverse() {
+        return _reverse;
+    }
+
+    /** Returns true iff I hold a shortest path between my root and V. */
+    public boolean reaches(Graph<VLabel, ELabel>.Vertex v) {
+        return distance(v) != Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the weight of a shortest path from my root to V (from V to
+     *  my root, if I am reversed), or Double.POSITIVE_INFINITY if I do not
+     *  reach V. */
+    public double distance(Graph<VLabel, ELabel>.Vertex v) {
+        int id = v.id();
+        return id < _dist.length ? _dist[id] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the edge between V and the next vertex toward my root on
+     *  my path for V, or null if V is my root or I do not reach it. */
+    public Graph<VLabel, ELabel>.Edge parentEdge(
+        Graph<VLabel, ELabel>.Vertex v) {
+        int id = v.id();
+        return id < _parents.length ? _parents[id] : null;
+    }
+
+    /** Returns a shortest path from my root to V (from V to my root, if I
+     *  am reversed), or null if I do not reach V.  The path is empty if V
+     *  is my root. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    path(Graph<VLabel, ELabel>.Vertex v) {
+        if (!reaches(v)) {
+            return null;
+        }
+        LinkedList<Graph<VLabel, ELabel>.Edge> answer =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        while (v != _root) {
+            Graph<VLabel, ELabel>.Edge e = _parents[v.id()];
+            if (_reverse) {
+                answer.addLast(e);
+            } else {
+                answer.addFirst(e);
+            }
+            v = e.getV(v);
+        }
+        return answer;
+    }
+
+    /** My root. */
+    private final Graph<VLabel, ELabel>.Vertex _root;
+    /** True iff my paths lead to _ROOT. */
+    private final boolean _reverse;
+    /** The distance of each vertex from or to _ROOT, indexed by id. */
+    private final double[] _dist;
+    /** The edge joining each vertex to its parent, indexed by id. */
+    private final Graph<VLabel, ELabel>.Edge[] _parents;
+}
@@ -0,0 +1,180 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The strongly connected components of a graph: the maximal sets of
+ *  vertices each of which can reach all the others.  They are found by
+ *  Tarjan's algorithm in time proportional to the numbers of vertices and
+ *  edges, using explicit stacks rather than recursion, so that graphs of
+ *  any depth may be handled.  Components are numbered 0 .. count()-1 in
+ *  topological order: every edge leads from a component to itself or to
+ *  a higher-numbered one.  In an undirected graph, the components are
+ *  simply the connected components.  The results describe the graph as
+ *  it was when the StrongComponents was created.
+ *  @author Scott Lee
+ */
+public class StrongComponents<VLabel, ELabel> {
+
+    /** The strongly connected components of G. */
+    public StrongComponents(Graph<VLabel, ELabel> G) {
+        _G = G;
+        int n = G.vertexIdBound();
+        _component = new int[n];
+        Graph<VLabel, ELabel>.Vertex[] byId = newVertexArray(n);
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            byId[v.id()] = v;
+        }
+        int[] index = new int[n], low = new int[n];
+        int[] stack = new int[n], call = new int[n], cursor = new int[n];
+        BitVertexSet onStack = new BitVertexSet(n);
+        BitVertexSet loops = new BitVertexSet(n);
+        boolean[] cyclic = new boolean[n];
+        int count = 0, visited = 0, stackSize = 0;
+        for (Graph<VLabel, ELabel>.Vertex root : G.vertices()) {
+            if (index[root.id()] != 0) {
+                continue;
+            }
+            int depth = 0;
+            call[depth] = root.id();
+            cursor[depth] = 0;
+            depth += 1;
+            visited += 1;
+            index[root.id()] = low[root.id()] = visited;
+            stack[stackSize] = root.id();
+            stackSize += 1;
+            onStack.add(root.id());
+            while (depth > 0) {
+                int v = call[depth - 1];
+                int k = cursor[depth - 1];
+                if (k < G.outDegree(byId[v])) {
+                    cursor[depth - 1] = k + 1;
+                    int w = G.outEdge(byId[v], k).getV(byId[v]).id();
+                    if (w == v) {
+                        loops.add(v);
+                    }
+                    if (index[w] == 0) {
+                        call[depth] = w;
+                        cursor[depth] = 0;
+                        depth += 1;
+                        visited += 1;
+                        index[w] = low[w] = visited;
+                        stack[stackSize] = w;
+                        stackSize += 1;
+                        onStack.add(w);
+                    } else if (onStack.contains(w)) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depth -= 1;
+                if (low[v] == index[v]) {
+                    int size = 0, w;
+                    do {
+                        stackSize -= 1;
+                        w = stack[stackSize];
+                        onStack.remove(w);
+                        _component[w] = count;
+                        size += 1;
+                    } while (w != v);
+                    cyclic[count] = size > 1 || loops.contains(v);
+                    count += 1;
+                }
+                if (depth > 0) {
+                    int u = call[depth - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        _count = count;
+        _cyclic = new boolean[count];
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _component[v.id()] = count - 1 - _component[v.id()];
+        }
+        for (int c = 0; c < count; c += 1) {
+            _cyclic[count - 1 - c] = cyclic[c];
+        }
+    }
+
+    /** Returns the number of components. */
+    public int count() {
+        return _count;
+    }
+
+    /** Returns the number of the component containing V. */
+    public int component(Graph<VLabel, ELabel>.Vertex v) {
+        return _component[v.id()];
+    }
+
+    /** Returns true iff V lies on a cycle: that is, iff its component has
+     *  more than one vertex or it has an edge to itself.  (In an undirected
+     *  graph, this is true of any vertex with an edge.) */
+    public boolean isCyclic(Graph<VLabel, ELabel>.Vertex v) {
+        return _cyclic[_component[v.id()]];
+    }
+
+    /** Returns true iff my graph has a cycle. */
+    public boolean hasCycle() {
+        for (boolean cyclic : _cyclic) {
+            if (cyclic) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the vertices of each component, indexed by component
+     *  number. */
+    public List<List<Graph<VLabel, ELabel>.Vertex>> members() {
+        List<List<Graph<VLabel, ELabel>.Vertex>> result =
+            new ArrayList<List<Graph<VLabel, ELabel>.Vertex>>(_count);
+        for (int c = 0; c < _count; c += 1) {
+            result.add(new ArrayList<Graph<VLabel, ELabel>.Vertex>());
+        }
+        for (Graph<VLabel, ELabel>.Vertex v : _G.vertices()) {
+            result.get(component(v)).add(v);
+        }
+        return result;
+    }
+
+    /** Returns the condensation of my graph: a directed acyclic graph with
+     *  one vertex for each component, labeled with its number and added
+     *  in order of number, and one edge from component C0 to component
+     *  C1 != C0 if some edge of my graph leads from C0 to C1. */
+    public DirectedGraph<Integer, NoLabel> condensation() {
+        DirectedGraph<Integer, NoLabel> dag =
+            new DirectedGraph<Integer, NoLabel>();
+        List<DirectedGraph<Integer, NoLabel>.Vertex> nodes =
+            new ArrayList<DirectedGraph<Integer, NoLabel>.Vertex>(_count);
+        for (int c = 0; c < _count; c += 1) {
+            nodes.add(dag.add(c));
+        }
+        for (Graph<VLabel, ELabel>.Vertex v : _G.vertices()) {
+            DirectedGraph<Integer, NoLabel>.Vertex from =
+                nodes.get(component(v));
+            for (int k = 0; k < _G.outDegree(v); k += 1) {
+                DirectedGraph<Integer, NoLabel>.Vertex to =
+                    nodes.get(component(_G.outEdge(v, k).getV(v)));
+                if (from != to && !dag.contains(from, to)) {
+                    dag.add(from, to);
+                }
+            }
+        }
+        return dag;
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex[] newVertexArray(int n) {
+        return (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** The graph whose components I describe. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The number of components. */
+    private final int _count;
+    /** The component of each vertex, indexed by id. */
+    private final int[] _component;
+    /** Whether each component contains a cycle, indexed by number. */
+    private final boolean[] _cyclic;
+}
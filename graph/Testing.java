@@ -1,5 +1,15 @@
 package graph;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
 import org.junit.Test;
 import ucb.junit.textui;
 import static org.junit.Assert.*;
@@ -270,5 +280,1455 @@ public class Testing {
         g.remove(v2);
         assertEquals("Error1: ", 8, g.edgeSize());
     }
-}
 
+    @Test
+    public void testAdjacencyDirected() {
+        DirectedGraph<String, Integer> g = new DirectedGraph<String, Integer>();
+        DirectedGraph<String, Integer>.Vertex A = g.add("A");
+        DirectedGraph<String, Integer>.Vertex B = g.add("B");
+        DirectedGraph<String, Integer>.Vertex C = g.add("C");
+        g.add(A, B, 1);
+        g.add(A, C, 2);
+        g.add(C, A, 3);
+        g.add(B, B, 4);
+        assertEquals("Error in outDegree", 2, g.outDegree(A));
+        assertEquals("Error in inDegree", 1, g.inDegree(A));
+        assertEquals("Error in self outDegree", 1, g.outDegree(B));
+        assertEquals("Error in self inDegree", 2, g.inDegree(B));
+        int n = 0;
+        for (DirectedGraph<String, Integer>.Vertex v : g.predecessors(B)) {
+            assertEquals("Error in predecessors", true, v == A || v == B);
+            n += 1;
+        }
+        assertEquals("Error in predecessor count", 2, n);
+        n = 0;
+        for (DirectedGraph<String, Integer>.Vertex v : g.successors(C)) {
+            assertEquals("Error in successors", A, v);
+            n += 1;
+        }
+        assertEquals("Error in successor count", 1, n);
+    }
+
+    @Test
+    public void testAdjacencyUndirected() {
+        Graph<String, Integer> g = new UndirectedGraph<String, Integer>();
+        UndirectedGraph<String, Integer>.Vertex A = g.add("A");
+        UndirectedGraph<String, Integer>.Vertex B = g.add("B");
+        UndirectedGraph<String, Integer>.Vertex C = g.add("C");
+        g.add(A, B, 1);
+        g.add(C, A, 2);
+        g.add(A, A, 3);
+        assertEquals("Error in degree", 3, g.degree(A));
+        assertEquals("Error in inDegree", 3, g.inDegree(A));
+        assertEquals("Error in degree", 1, g.degree(C));
+        int n = 0;
+        for (UndirectedGraph<String, Integer>.Edge e : g.inEdges(C)) {
+            assertEquals("Error in inEdges", A, e.getV(C));
+            n += 1;
+        }
+        assertEquals("Error in inEdges count", 1, n);
+        n = 0;
+        for (UndirectedGraph<String, Integer>.Vertex v : g.predecessors(A)) {
+            n += 1;
+        }
+        assertEquals("Error in predecessor count", 3, n);
+    }
+
+    @Test
+    public void testContainsParallelEdges() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        DirectedGraph<String, String>.Vertex A = g.add("A");
+        DirectedGraph<String, String>.Vertex B = g.add("B");
+        DirectedGraph<String, String>.Edge e1 = g.add(A, B, "x");
+        g.add(A, B, "y");
+        assertEquals("Error with contains", true, g.contains(A, B, "y"));
+        assertEquals("Error with contains", false, g.contains(B, A));
+        g.remove(e1);
+        assertEquals("Error with contains", true, g.contains(A, B));
+        assertEquals("Error with contains", false, g.contains(A, B, "x"));
+        g.remove(A, B);
+        assertEquals("Error with contains", false, g.contains(A, B));
+        assertEquals("Error with contains", false, g.contains(A, B, "y"));
+        assertEquals("Error with edge size", 0, g.edgeSize());
+
+        Graph<String, String> u = new UndirectedGraph<String, String>();
+        UndirectedGraph<String, String>.Vertex C = u.add("C");
+        UndirectedGraph<String, String>.Vertex D = u.add("D");
+        u.add(D, C, "z");
+        assertEquals("Error with contains", true, u.contains(C, D, "z"));
+        u.remove(C, D);
+        assertEquals("Error with contains", false, u.contains(D, C));
+    }
+
+    @Test
+    public void testRemoveEdgeIdentity() {
+        DirectedGraph<String, Integer> g = new DirectedGraph<String, Integer>();
+        DirectedGraph<String, Integer>.Vertex A = g.add("A");
+        DirectedGraph<String, Integer>.Vertex B = g.add("B");
+        DirectedGraph<String, Integer>.Vertex C = g.add("C");
+        DirectedGraph<String, Integer>.Edge e1 = g.add(A, B, 7);
+        DirectedGraph<String, Integer>.Edge e2 = g.add(B, C, 7);
+        g.add(C, A, 7);
+        g.remove(e1);
+        g.remove(e1);
+        assertEquals("Error with remove1", 2, g.edgeSize());
+        assertEquals("Error with remove2", true, g.contains(B, C, 7));
+        assertEquals("Error with remove3", true, g.contains(C, A, 7));
+        assertEquals("Error with remove4", 1, g.outDegree(B));
+        g.remove(B);
+        g.remove(B);
+        assertEquals("Error with remove5", 2, g.vertexSize());
+        assertEquals("Error with remove6", 1, g.edgeSize());
+        g.remove(e2);
+        assertEquals("Error with remove7", 1, g.edgeSize());
+        assertEquals("Error with remove8", 1, g.inDegree(A));
+        int n = 0;
+        for (DirectedGraph<String, Integer>.Vertex v : g.vertices()) {
+            n += 1;
+        }
+        assertEquals("Error with remove9", 2, n);
+    }
+
+    @Test
+    public void testFreeze() {
+        DirectedGraph<String, Integer> g = new DirectedGraph<String, Integer>();
+        DirectedGraph<String, Integer>.Vertex A = g.add("A");
+        DirectedGraph<String, Integer>.Vertex B = g.add("B");
+        DirectedGraph<String, Integer>.Vertex C = g.add("C");
+        g.add(A, B, 1);
+        g.add(A, C, 2);
+        g.add(C, B, 3);
+        Graph<String, Integer> f = g.freeze();
+        g.remove(A);
+        assertEquals("Error in frozen vertex size", 3, f.vertexSize());
+        assertEquals("Error in frozen edge size", 3, f.edgeSize());
+        assertEquals("Error in frozen outDegree", 2, f.outDegree(A));
+        assertEquals("Error in frozen inDegree", 2, f.inDegree(B));
+        assertEquals("Error in frozen contains", true, f.contains(C, B, 3));
+        assertEquals("Error in frozen contains", false, f.contains(B, C));
+        String order = "";
+        for (DirectedGraph<String, Integer>.Vertex v : f.successors(A)) {
+            order += v.getLabel();
+        }
+        assertEquals("Error in frozen successors", "BC", order);
+        order = "";
+        for (DirectedGraph<String, Integer>.Vertex v : f.predecessors(B)) {
+            order += v.getLabel();
+        }
+        assertEquals("Error in frozen predecessors", "AC", order);
+        try {
+            f.add("D");
+            fail("frozen graph accepted a vertex");
+        } catch (UnsupportedOperationException e) {
+            /* Expected. */
+        }
+
+        Graph<String, Integer> u = new UndirectedGraph<String, Integer>();
+        UndirectedGraph<String, Integer>.Vertex D = u.add("D");
+        UndirectedGraph<String, Integer>.Vertex E = u.add("E");
+        u.add(E, D, 4);
+        u.add(D, D, 5);
+        Graph<String, Integer> uf = u.freeze();
+        assertEquals("Error in frozen degree", 2, uf.degree(D));
+        assertEquals("Error in frozen contains", true, uf.contains(D, E));
+    }
+
+    @Test
+    public void testIndexedEdges() {
+        Graph<String, Integer> g = new UndirectedGraph<String, Integer>();
+        UndirectedGraph<String, Integer>.Vertex A = g.add("A");
+        UndirectedGraph<String, Integer>.Vertex B = g.add("B");
+        UndirectedGraph<String, Integer>.Vertex C = g.add("C");
+        g.add(A, B, 1);
+        g.add(C, A, 2);
+        g.add(B, C, 3);
+        int k = 0;
+        for (UndirectedGraph<String, Integer>.Edge e : g.outEdges(A)) {
+            assertEquals("Error in outEdge", e, g.outEdge(A, k));
+            assertEquals("Error in inEdge", e, g.inEdge(A, k));
+            k += 1;
+        }
+        assertEquals("Error in outEdges count", g.outDegree(A), k);
+        Graph<String, Integer> f = g.freeze();
+        for (k = 0; k < f.outDegree(C); k += 1) {
+            assertEquals("Error in frozen outEdge", g.outEdge(C, k),
+                         f.outEdge(C, k));
+        }
+    }
+
+    @Test
+    public void testIds() {
+        DirectedGraph<String, Integer> g = new DirectedGraph<String, Integer>();
+        DirectedGraph<String, Integer>.Vertex A = g.add("A");
+        DirectedGraph<String, Integer>.Vertex B = g.add("B");
+        DirectedGraph<String, Integer>.Vertex C = g.add("C");
+        DirectedGraph<String, Integer>.Edge e = g.add(A, B, 1);
+        g.add(B, C, 2);
+        assertEquals("Error in vertex ids", 3, g.vertexIdBound());
+        assertEquals("Error in edge ids", 2, g.edgeIdBound());
+        int idB = B.id();
+        g.remove(A);
+        assertEquals("Error in stable id", idB, B.id());
+        DirectedGraph<String, Integer>.Vertex D = g.add("D");
+        assertEquals("Error in reused id", 3, g.vertexIdBound());
+        assertEquals("Error in distinct ids", true,
+                     D.id() != B.id() && D.id() != C.id());
+        assertEquals("Error in reused edge id", e.id(), g.add(D, B).id());
+        Graph<String, Integer> f = g.freeze();
+        assertEquals("Error in frozen outDegree", 1, f.outDegree(D));
+    }
+
+    @Test
+    public void testVertexMaps() {
+        Graph<String, Integer> g = new UndirectedGraph<String, Integer>();
+        UndirectedGraph<String, Integer>.Vertex A = g.add("A");
+        UndirectedGraph<String, Integer>.Vertex B = g.add("B");
+        BitVertexSet set = new BitVertexSet(g);
+        assertEquals("Error in set add", true, set.add(A));
+        assertEquals("Error in set add", false, set.add(A));
+        assertEquals("Error in set contains", false, set.contains(B));
+        assertEquals("Error in large id", false, set.contains(1000));
+        set.add(1000);
+        assertEquals("Error in set size", 2, set.size());
+        set.clear();
+        assertEquals("Error in set clear", false, set.contains(A));
+        DoubleVertexMap dist =
+            new DoubleVertexMap(g, Double.POSITIVE_INFINITY);
+        dist.put(B, 2.5);
+        assertEquals("Error in map get", 2.5, dist.get(B), 0.0);
+        assertEquals("Error in map default", Double.POSITIVE_INFINITY,
+                     dist.get(A), 0.0);
+        dist.clear();
+        assertEquals("Error in map clear", false, dist.containsKey(B));
+        IntVertexMap hops = new IntVertexMap(0, -1);
+        hops.put(A, 3);
+        assertEquals("Error in map growth", 3, hops.get(A));
+        assertEquals("Error in map default", -1, hops.get(B));
+    }
+
+    /** A traversal that records the order of visits and postvisits. */
+    private static class Recorder extends Traversal<Integer, NoLabel> {
+        @Override
+        protected void visit(Graph<Integer, NoLabel>.Vertex v) {
+            _order.append(v.getLabel()).append(' ');
+        }
+
+        @Override
+        protected void postVisit(Graph<Integer, NoLabel>.Vertex v) {
+            _order.append('/').append(v.getLabel()).append(' ');
+        }
+
+        /** Record of visits. */
+        private StringBuilder _order = new StringBuilder();
+    }
+
+    @Test
+    public void testLargeTraversals() {
+        int n = 100000;
+        DirectedGraph<Integer, NoLabel> g =
+            new DirectedGraph<Integer, NoLabel>();
+        DirectedGraph<Integer, NoLabel>.Vertex first = g.add(0);
+        DirectedGraph<Integer, NoLabel>.Vertex prev = first;
+        for (int i = 1; i < n; i += 1) {
+            DirectedGraph<Integer, NoLabel>.Vertex next = g.add(i);
+            g.add(prev, next);
+            g.add(next, first);
+            prev = next;
+        }
+        Recorder depth = new Recorder();
+        depth.depthFirstTraverse(g, first);
+        assertEquals("Error in depth-first start", "0 1 2 ",
+                     depth._order.substring(0, 6));
+        Recorder breadth = new Recorder();
+        breadth.breadthFirstTraverse(g, first);
+        assertEquals("Error in breadth-first start", "0 1 /0 ",
+                     breadth._order.substring(0, 7));
+        breadth._order = new StringBuilder();
+        breadth.breadthFirstTraverse(g, first);
+        assertEquals("Error in repeated breadth-first", "0 1 /0 ",
+                     breadth._order.substring(0, 7));
+    }
+
+    @Test
+    public void testVertexHeap() {
+        Graph<String, Integer> g = new DirectedGraph<String, Integer>();
+        VertexHeap<String, Integer> heap = new VertexHeap<String, Integer>();
+        String[] labels = { "A", "B", "C", "D", "E" };
+        double[] keys = { 5.0, 3.0, 8.0, 1.0, 4.0 };
+        Graph<String, Integer>.Vertex c = null;
+        for (int i = 0; i < labels.length; i += 1) {
+            Graph<String, Integer>.Vertex v = g.add(labels[i]);
+            heap.add(v, keys[i]);
+            if (i == 2) {
+                c = v;
+            }
+        }
+        heap.add(c, 0.5);
+        assertEquals("Error in heap size", 5, heap.size());
+        assertEquals("Error in heap key", 0.5, heap.key(c), 0.0);
+        String order = "";
+        while (!heap.isEmpty()) {
+            order += heap.poll().getLabel();
+        }
+        assertEquals("Error in heap order", "CDBEA", order);
+        assertEquals("Error in heap contains", false, heap.contains(c));
+    }
+
+    /** A weighted, weightable label. */
+    private static class Weight implements Weightable {
+        /** A label with weight W. */
+        Weight(double w) {
+            _weight = w;
+        }
+
+        @Override
+        public double weight() {
+            return _weight;
+        }
+
+        @Override
+        public void setWeight(double w) {
+            _weight = w;
+        }
+
+        /** My weight. */
+        private double _weight;
+    }
+
+    @Test
+    public void testShortestPath() {
+        Graph<Weight, Weight> g = new DirectedGraph<Weight, Weight>();
+        Graph<Weight, Weight>.Vertex A = g.add(new Weight(0.0));
+        Graph<Weight, Weight>.Vertex B = g.add(new Weight(0.0));
+        Graph<Weight, Weight>.Vertex C = g.add(new Weight(0.0));
+        Graph<Weight, Weight>.Vertex D = g.add(new Weight(0.0));
+        Graph<Weight, Weight>.Vertex E = g.add(new Weight(0.0));
+        Graph<Weight, Weight>.Edge ab = g.add(A, B, new Weight(1.0));
+        g.add(A, C, new Weight(4.0));
+        Graph<Weight, Weight>.Edge bc = g.add(B, C, new Weight(2.0));
+        g.add(B, D, new Weight(7.0));
+        Graph<Weight, Weight>.Edge cd = g.add(C, D, new Weight(1.0));
+        g.add(E, A, new Weight(1.0));
+        List<Graph<Weight, Weight>.Edge> path =
+            Graphs.shortestPath(g, A, D, Graphs.ZERO_DISTANCER);
+        assertEquals("Error in path length", 3, path.size());
+        assertEquals("Error in path", ab, path.get(0));
+        assertEquals("Error in path", bc, path.get(1));
+        assertEquals("Error in path", cd, path.get(2));
+        assertEquals("Error in path weight", 4.0, D.getLabel().weight(), 0.0);
+        assertEquals("Error in unreachable", null,
+                     Graphs.shortestPath(g, A, E, Graphs.ZERO_DISTANCER));
+        assertEquals("Error in unreachable weight", Double.POSITIVE_INFINITY,
+                     E.getLabel().weight(), 0.0);
+        assertEquals("Error in empty path", 0,
+                     Graphs.shortestPath(g.freeze(), B, B,
+                                         Graphs.ZERO_DISTANCER).size());
+    }
+
+    @Test
+    public void testPathSearch() {
+        Graph<Weight, Weight> g = new UndirectedGraph<Weight, Weight>();
+        Graph<Weight, Weight>.Vertex A = g.add(new Weight(-1.0));
+        Graph<Weight, Weight>.Vertex B = g.add(new Weight(-1.0));
+        Graph<Weight, Weight>.Vertex C = g.add(new Weight(-1.0));
+        Graph<Weight, Weight>.Vertex D = g.add(new Weight(-1.0));
+        g.add(A, B, new Weight(2.0));
+        g.add(C, B, new Weight(2.0));
+        g.add(A, C, new Weight(5.0));
+        PathSearch<Weight, Weight> search =
+            new PathSearch<Weight, Weight>(g, Graphs.LABEL_WEIGHTS);
+        assertEquals("Error in path length", 2,
+                     search.shortestPath(A, C, Graphs.ZERO_DISTANCER).size());
+        assertEquals("Error in distance", 4.0, search.distance(C), 0.0);
+        assertEquals("Error in distance", 2.0, search.distance(B), 0.0);
+        assertEquals("Error in label", -1.0, C.getLabel().weight(), 0.0);
+        assertEquals("Error in unreachable", null,
+                     search.shortestPath(B, D, Graphs.ZERO_DISTANCER));
+        assertEquals("Error in distance", Double.POSITIVE_INFINITY,
+                     search.distance(D), 0.0);
+        assertEquals("Error in label", -1.0, D.getLabel().weight(), 0.0);
+        assertEquals("Error in reuse", 1,
+                     search.shortestPath(C, B, Graphs.ZERO_DISTANCER).size());
+        assertEquals("Error in reuse distance", 0.0, search.distance(C), 0.0);
+    }
+
+    @Test
+    public void testShortestPathTree() {
+        int n = 1500;
+        Random rand = new Random(61);
+        Graph<Integer, Double> g = new DirectedGraph<Integer, Double>();
+        List<Graph<Integer, Double>.Vertex> all =
+            new ArrayList<Graph<Integer, Double>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 0; i < 3 * n; i += 1) {
+            g.add(all.get(rand.nextInt(n)), all.get(rand.nextInt(n)),
+                  (double) rand.nextInt(100));
+        }
+        Weighting<Double> weights = new Weighting<Double>() {
+            @Override
+            public double weight(Double w) {
+                return w;
+            }
+        };
+        PathSearch<Integer, Double> search =
+            new PathSearch<Integer, Double>(g, weights);
+        Graph<Integer, Double>.Vertex root = all.get(0);
+        ShortestPathTree<Integer, Double> tree =
+            Graphs.shortestPathTree(g, root, weights);
+        ShortestPathTree<Integer, Double> back =
+            search.reverseShortestPathTree(root);
+        List<Graph<Integer, Double>.Vertex> targets =
+            new ArrayList<Graph<Integer, Double>.Vertex>();
+        for (int k = 0; k < 20; k += 1) {
+            targets.add(all.get(rand.nextInt(n)));
+        }
+        ShortestPathTree<Integer, Double> some =
+            search.shortestPathTree(root, targets);
+        int reached = 0;
+        for (Graph<Integer, Double>.Vertex v : all) {
+            List<Graph<Integer, Double>.Edge> path =
+                search.shortestPath(root, v, Graphs.ZERO_DISTANCER);
+            assertEquals("Error in reaching", path != null, tree.reaches(v));
+            assertEquals("Error in distance", search.distance(v),
+                         tree.distance(v), 0.0);
+            if (path != null) {
+                reached += 1;
+                checkTreePath(tree.path(v), root, v, tree.distance(v));
+            }
+            if (some.reaches(v)) {
+                assertEquals("Error in partial distance", tree.distance(v),
+                             some.distance(v), 0.0);
+            } else {
+                assertFalse("Error in missing target",
+                            targets.contains(v) && tree.reaches(v));
+            }
+            path = search.shortestPath(v, root, Graphs.ZERO_DISTANCER);
+            assertEquals("Error in reverse distance", search.distance(root),
+                         back.distance(v), 0.0);
+            if (path != null) {
+                checkTreePath(back.path(v), v, root, back.distance(v));
+            }
+        }
+        assertTrue("Error in test graph", reached > 1 && reached < n);
+        Graph<Integer, Double>.Vertex near = g.outEdge(root, 0).getV(root);
+        ShortestPathTree<Integer, Double> one =
+            search.shortestPathTree(root, Collections.singletonList(near));
+        int partial = 0;
+        for (Graph<Integer, Double>.Vertex v : all) {
+            if (one.reaches(v)) {
+                partial += 1;
+                assertEquals("Error in partial distance", tree.distance(v),
+                             one.distance(v), 0.0);
+            }
+        }
+        assertTrue("Error in early stop", one.reaches(near));
+        assertTrue("Error in early stop", partial < reached);
+        assertTrue("Error in reverse", back.isReverse());
+        assertEquals("Error in root path", 0, tree.path(root).size());
+        assertEquals("Error in root edge", null, tree.parentEdge(root));
+    }
+
+    /** Check that PATH leads from V0 to V1 with total weight WEIGHT. */
+    private void checkTreePath(List<Graph<Integer, Double>.Edge> path,
+                               Graph<Integer, Double>.Vertex v0,
+                               Graph<Integer, Double>.Vertex v1,
+                               double weight) {
+        double total = 0.0;
+        Graph<Integer, Double>.Vertex v = v0;
+        for (Graph<Integer, Double>.Edge e : path) {
+            assertEquals("Error in path edge", v, e.getV0());
+            total += e.getLabel();
+            v = e.getV1();
+        }
+        assertEquals("Error in path end", v1, v);
+        assertEquals("Error in path weight", weight, total, 0.0);
+    }
+
+    @Test
+    public void testBidirectionalShortestPath() {
+        Distancer<double[]> straight = new Distancer<double[]>() {
+            @Override
+            public double dist(double[] p0, double[] p1) {
+                return Math.hypot(p0[0] - p1[0], p0[1] - p1[1]);
+            }
+        };
+        Weighting<Double> weights = new Weighting<Double>() {
+            @Override
+            public double weight(Double w) {
+                return w;
+            }
+        };
+        for (int trial = 0; trial < 2; trial += 1) {
+            int n = 800;
+            Random rand = new Random(61 + trial);
+            Graph<double[], Double> g = trial == 0
+                ? new DirectedGraph<double[], Double>()
+                : new UndirectedGraph<double[], Double>();
+            List<Graph<double[], Double>.Vertex> all =
+                new ArrayList<Graph<double[], Double>.Vertex>();
+            for (int i = 0; i < n; i += 1) {
+                all.add(g.add(new double[] { rand.nextDouble() * 100,
+                                             rand.nextDouble() * 100 }));
+            }
+            for (int i = 0; i < 3 * n; i += 1) {
+                Graph<double[], Double>.Vertex u = all.get(rand.nextInt(n)),
+                    v = all.get((u.getLabel()[0] < 50 ? 0 : n / 2)
+                                + rand.nextInt(n / 2));
+                g.add(u, v, straight.dist(u.getLabel(), v.getLabel())
+                      * (1.0 + rand.nextDouble()));
+            }
+            PathSearch<double[], Double> one =
+                new PathSearch<double[], Double>(g, weights),
+                two = new PathSearch<double[], Double>(g, weights);
+            int found = 0;
+            for (int q = 0; q < 300; q += 1) {
+                Graph<double[], Double>.Vertex v0 = all.get(rand.nextInt(n)),
+                    v1 = all.get(rand.nextInt(n));
+                List<Graph<double[], Double>.Edge> expected =
+                    one.shortestPath(v0, v1, Graphs.ZERO_DISTANCER);
+                List<Graph<double[], Double>.Edge> path =
+                    two.bidirectionalShortestPath(v0, v1,
+                                                  q % 2 == 0 ? straight
+                                                  : Graphs.ZERO_DISTANCER);
+                if (expected == null) {
+                    assertEquals("Error in unreachable", null, path);
+                    continue;
+                }
+                found += 1;
+                double total = 0.0;
+                Graph<double[], Double>.Vertex v = v0;
+                for (Graph<double[], Double>.Edge e : path) {
+                    assertTrue("Error in path edge", e.getV0() == v
+                               || !g.isDirected() && e.getV1() == v);
+                    total += e.getLabel();
+                    v = e.getV(v);
+                }
+                assertEquals("Error in path end", v1, v);
+                assertEquals("Error in path weight", one.distance(v1), total,
+                             1e-9);
+                assertEquals("Error in distance", one.distance(v1),
+                             two.distance(v1), 1e-9);
+            }
+            assertTrue("Error in test graph", found > 100 && found < 300);
+        }
+    }
+
+    @Test
+    public void testContractionHierarchy() {
+        Weighting<Double> weights = new Weighting<Double>() {
+            @Override
+            public double weight(Double w) {
+                return w;
+            }
+        };
+        for (int trial = 0; trial < 2; trial += 1) {
+            int n = 1000;
+            Random rand = new Random(71 + trial);
+            Graph<Integer, Double> g = trial == 0
+                ? new DirectedGraph<Integer, Double>()
+                : new UndirectedGraph<Integer, Double>();
+            List<Graph<Integer, Double>.Vertex> all =
+                new ArrayList<Graph<Integer, Double>.Vertex>();
+            for (int i = 0; i < n; i += 1) {
+                all.add(g.add(i));
+            }
+            for (int i = 0; i < 3 * n; i += 1) {
+                int u = rand.nextInt(n), v = (u + rand.nextInt(30)) % n;
+                g.add(all.get(u), all.get(i % 50 == 0 ? rand.nextInt(n) : v),
+                      (double) rand.nextInt(20));
+            }
+            PathSearch<Integer, Double> search =
+                new PathSearch<Integer, Double>(g, weights);
+            ContractionHierarchy<Integer, Double> ch =
+                new ContractionHierarchy<Integer, Double>(g, weights);
+            assertEquals("Error in graph", g, ch.graph());
+            int found = 0;
+            for (int q = 0; q < 300; q += 1) {
+                Graph<Integer, Double>.Vertex v0 = all.get(rand.nextInt(n)),
+                    v1 = all.get(rand.nextInt(n));
+                List<Graph<Integer, Double>.Edge> expected =
+                    search.shortestPath(v0, v1, Graphs.ZERO_DISTANCER);
+                List<Graph<Integer, Double>.Edge> path =
+                    ch.shortestPath(v0, v1);
+                if (expected == null) {
+                    assertEquals("Error in unreachable", null, path);
+                    assertEquals("Error in unreachable distance",
+                                 Double.POSITIVE_INFINITY,
+                                 ch.distance(v0, v1), 0.0);
+                    continue;
+                }
+                found += 1;
+                double total = 0.0;
+                Graph<Integer, Double>.Vertex v = v0;
+                for (Graph<Integer, Double>.Edge e : path) {
+                    assertTrue("Error in path edge", e.getV0() == v
+                               || !g.isDirected() && e.getV1() == v);
+                    total += e.getLabel();
+                    v = e.getV(v);
+                }
+                assertEquals("Error in path end", v1, v);
+                assertEquals("Error in path weight", search.distance(v1),
+                             total, 0.0);
+                assertEquals("Error in distance", search.distance(v1),
+                             ch.distance(v0, v1), 0.0);
+            }
+            assertTrue("Error in test graph", found > 100);
+            assertEquals("Error in empty path", 0,
+                         ch.shortestPath(all.get(5), all.get(5)).size());
+        }
+    }
+
+    @Test
+    public void testLandmarks() {
+        Weighting<Double> weights = new Weighting<Double>() {
+            @Override
+            public double weight(Double w) {
+                return w;
+            }
+        };
+        for (int trial = 0; trial < 2; trial += 1) {
+            int n = 800;
+            Random rand = new Random(81 + trial);
+            Graph<Integer, Double> g = trial == 0
+                ? new DirectedGraph<Integer, Double>()
+                : new UndirectedGraph<Integer, Double>();
+            List<Graph<Integer, Double>.Vertex> all =
+                new ArrayList<Graph<Integer, Double>.Vertex>();
+            for (int i = 0; i < n; i += 1) {
+                all.add(g.add(i));
+            }
+            for (int i = 0; i < 3 * n; i += 1) {
+                int u = rand.nextInt(n), v = (u + 1 + rand.nextInt(20)) % n;
+                g.add(all.get(u), all.get(v), 1.0 + rand.nextInt(10));
+            }
+            Landmarks<Integer, Double> marks =
+                new Landmarks<Integer, Double>(g, weights, 6);
+            assertEquals("Error in landmark count", 6,
+                         new HashSet<Graph<Integer, Double>.Vertex>(
+                             marks.landmarks()).size());
+            PathSearch<Integer, Double> exact =
+                new PathSearch<Integer, Double>(g, weights),
+                guided = new PathSearch<Integer, Double>(g, weights);
+            Graph<Integer, Double>.Vertex root = all.get(rand.nextInt(n));
+            ShortestPathTree<Integer, Double> tree =
+                exact.shortestPathTree(root);
+            for (Graph<Integer, Double>.Vertex v : all) {
+                double bound = marks.dist(root.getLabel(), v.getLabel());
+                assertTrue("Error in bound", bound <= tree.distance(v));
+                assertEquals("Error in vertex bound", bound,
+                             marks.distance(root, v), 0.0);
+            }
+            for (int q = 0; q < 200; q += 1) {
+                Graph<Integer, Double>.Vertex v0 = all.get(rand.nextInt(n)),
+                    v1 = all.get(rand.nextInt(n));
+                List<Graph<Integer, Double>.Edge> expected =
+                    exact.shortestPath(v0, v1, Graphs.ZERO_DISTANCER),
+                    path = guided.shortestPath(v0, v1, marks);
+                assertEquals("Error in reaching", expected == null,
+                             path == null);
+                if (expected != null) {
+                    assertEquals("Error in distance", exact.distance(v1),
+                                 guided.distance(v1), 0.0);
+                }
+            }
+        }
+        Graph<Integer, Double> g = new DirectedGraph<Integer, Double>();
+        Graph<Integer, Double>.Vertex a = g.add(1), b = g.add(2),
+            c = g.add(3);
+        g.add(a, b, 2.0);
+        g.add(b, c, 3.0);
+        Landmarks<Integer, Double> marks =
+            new Landmarks<Integer, Double>(g, weights,
+                                           Collections.singletonList(c));
+        assertEquals("Error in chosen landmark", c, marks.landmarks().get(0));
+        assertEquals("Error in bound", 5.0, marks.distance(a, c), 0.0);
+        assertEquals("Error in bound", 0.0, marks.distance(c, a), 0.0);
+        assertEquals("Error in unknown label", 0.0,
+                     marks.dist(1000, c.getLabel()), 0.0);
+        try {
+            new Landmarks<Integer, Double>(g, weights, 4);
+            fail("Error in too many landmarks");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+
+        Graph<Integer, Double> flat = new UndirectedGraph<Integer, Double>();
+        Graph<Integer, Double>.Vertex x = flat.add(1), y = flat.add(2);
+        flat.add(x, y, 0.0);
+        List<Graph<Integer, Double>.Vertex> chosen =
+            new Landmarks<Integer, Double>(flat, weights, 2).landmarks();
+        assertEquals("Error in landmark count", 2, chosen.size());
+        assertTrue("Error in repeated landmark",
+                   chosen.get(0) != chosen.get(1));
+        assertEquals("Error in landmark count", 3,
+                     new HashSet<Graph<Integer, Double>.Vertex>(
+                         new Landmarks<Integer, Double>(g, weights, 3)
+                         .landmarks()).size());
+    }
+
+    @Test
+    public void testDistanceMatrix() {
+        int n = 1000;
+        Random rand = new Random(91);
+        Graph<Integer, Double> g = new DirectedGraph<Integer, Double>();
+        List<Graph<Integer, Double>.Vertex> all =
+            new ArrayList<Graph<Integer, Double>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 0; i < 3 * n; i += 1) {
+            g.add(all.get(rand.nextInt(n)), all.get(rand.nextInt(n)),
+                  (double) rand.nextInt(50));
+        }
+        Weighting<Double> weights = new Weighting<Double>() {
+            @Override
+            public double weight(Double w) {
+                return w;
+            }
+        };
+        List<Graph<Integer, Double>.Vertex> sources =
+            new ArrayList<Graph<Integer, Double>.Vertex>(),
+            targets = new ArrayList<Graph<Integer, Double>.Vertex>();
+        for (int k = 0; k < 30; k += 1) {
+            sources.add(all.get(rand.nextInt(n)));
+            targets.add(all.get(rand.nextInt(n)));
+        }
+        targets.add(sources.get(0));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        DistanceMatrix<Integer, Double> plain =
+            Graphs.distanceMatrix(g, sources, targets, weights),
+            full = Graphs.distanceMatrix(g, sources, targets, weights, true,
+                                         pool);
+        pool.shutdown();
+        PathSearch<Integer, Double> search =
+            new PathSearch<Integer, Double>(g, weights);
+        double[][] array = plain.toArray();
+        int found = 0;
+        for (int i = 0; i < sources.size(); i += 1) {
+            for (int j = 0; j < targets.size(); j += 1) {
+                List<Graph<Integer, Double>.Edge> expected =
+                    search.shortestPath(sources.get(i), targets.get(j),
+                                        Graphs.ZERO_DISTANCER);
+                double d = expected == null ? Double.POSITIVE_INFINITY
+                    : search.distance(targets.get(j));
+                assertEquals("Error in distance", d, plain.distance(i, j),
+                             0.0);
+                assertEquals("Error in array", d, array[i][j], 0.0);
+                assertEquals("Error in full distance", d,
+                             full.distance(i, j), 0.0);
+                assertEquals("Error in reaching", expected == null,
+                             full.path(i, j) == null);
+                if (expected != null) {
+                    found += 1;
+                    checkTreePath(full.path(i, j), sources.get(i),
+                                  targets.get(j), d);
+                }
+            }
+        }
+        assertTrue("Error in test graph",
+                   found > 100 && found < sources.size() * targets.size());
+        assertEquals("Error in self path", 0, full.path(0, 30).size());
+        assertFalse("Error in paths kept", plain.hasPaths());
+        try {
+            plain.path(0, 0);
+            fail("Error in missing paths");
+        } catch (IllegalStateException excp) {
+            /* Expected. */
+        }
+        search.shortestPath(sources.get(0), targets.get(0),
+                            Graphs.ZERO_DISTANCER);
+        try {
+            search.path(targets.get(0));
+            fail("Error in path without searchTargets");
+        } catch (IllegalStateException excp) {
+            /* Expected. */
+        }
+        sources.clear();
+        assertEquals("Error in empty matrix", 0,
+                     Graphs.distanceMatrix(g, sources, targets, weights)
+                     .toArray().length);
+    }
+
+    /** A thread-safe traversal that counts visits, stopping at the vertex
+     *  labeled _STOP and refusing to enter the one labeled _REJECT. */
+    private static class Counter extends Traversal<Integer, NoLabel> {
+        @Override
+        protected void visit(Graph<Integer, NoLabel>.Vertex v) {
+            _count.incrementAndGet();
+            if (v.getLabel() == _stop) {
+                throw new StopException();
+            }
+        }
+
+        @Override
+        protected void preVisit(Graph<Integer, NoLabel>.Edge e,
+                                Graph<Integer, NoLabel>.Vertex v0) {
+            if (e.getV(v0).getLabel() == _reject) {
+                throw new RejectException();
+            }
+        }
+
+        /** Number of visits. */
+        private AtomicInteger _count = new AtomicInteger();
+        /** Labels of the vertices to stop at and to reject. */
+        private int _stop = -1, _reject = -1;
+    }
+
+    @Test
+    public void testParallelBreadthFirst() {
+        int side = 400;
+        Graph<Integer, NoLabel> g = new UndirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> grid =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < side * side; i += 1) {
+            grid.add(g.add(i));
+            if (i % side != 0) {
+                g.add(grid.get(i - 1), grid.get(i));
+            }
+            if (i >= side) {
+                g.add(grid.get(i - side), grid.get(i));
+            }
+        }
+        Graph<Integer, NoLabel>.Vertex lonely = g.add(-2);
+        Counter all = new Counter();
+        all.parallelBreadthFirstTraverse(g, grid.get(0));
+        assertEquals("Error in visit count", side * side, all._count.get());
+        for (int i = 0; i < side * side; i += 1) {
+            assertEquals("Error in hops", i / side + i % side,
+                         all.hops(grid.get(i)));
+        }
+        assertEquals("Error in unreached hops", -1, all.hops(lonely));
+        assertEquals("Error in final vertex", null, all.finalVertex());
+
+        Counter cut = new Counter();
+        cut._reject = side;
+        cut.parallelBreadthFirstTraverse(g, grid.get(0));
+        assertEquals("Error in rejected hops", -1, cut.hops(grid.get(side)));
+        assertEquals("Error in detour hops", 4,
+                     cut.hops(grid.get(2 * side)));
+
+        Counter stopped = new Counter();
+        stopped._stop = 3 * side + 3;
+        stopped.parallelBreadthFirstTraverse(g.freeze(), grid.get(0));
+        assertEquals("Error in stopping vertex", grid.get(3 * side + 3),
+                     stopped.finalVertex());
+        assertTrue("Error in stopping", stopped._count.get() < side * side);
+    }
+
+    @Test
+    public void testDirectionOptimizing() {
+        int n = 20000;
+        Random rand = new Random(61);
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 0; i < 8 * n; i += 1) {
+            g.add(all.get(rand.nextInt(n)), all.get(rand.nextInt(n)));
+        }
+        Counter parallel = new Counter(), hybrid = new Counter();
+        parallel.parallelBreadthFirstTraverse(g, all.get(0));
+        hybrid.directionOptimizingTraverse(g, all.get(0));
+        assertEquals("Error in visit count", parallel._count.get(),
+                     hybrid._count.get());
+        for (Graph<Integer, NoLabel>.Vertex v : all) {
+            assertEquals("Error in hops", parallel.hops(v), hybrid.hops(v));
+        }
+
+        Graph<Integer, NoLabel> star = new UndirectedGraph<Integer, NoLabel>();
+        Graph<Integer, NoLabel>.Vertex center = star.add(0);
+        List<Graph<Integer, NoLabel>.Vertex> leaves =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 1; i <= 1000; i += 1) {
+            leaves.add(star.add(i));
+            star.add(leaves.get(i - 1), center);
+        }
+        Counter cut = new Counter();
+        cut._reject = 500;
+        cut.directionOptimizingTraverse(star, leaves.get(0));
+        assertEquals("Error in undirected hops", 1, cut.hops(center));
+        assertEquals("Error in bottom-up hops", 2, cut.hops(leaves.get(998)));
+        assertEquals("Error in bottom-up reject", -1,
+                     cut.hops(leaves.get(499)));
+        assertEquals("Error in visit count", 1000, cut._count.get());
+
+        Counter stopped = new Counter();
+        stopped._stop = 0;
+        stopped.directionOptimizingTraverse(star, leaves.get(0));
+        assertEquals("Error in stopping vertex", center,
+                     stopped.finalVertex());
+        assertEquals("Error in stopping", 2, stopped._count.get());
+    }
+
+    @Test
+    public void testMultiSourceSearch() {
+        int n = 3000;
+        Random rand = new Random(61);
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 0; i < 2 * n; i += 1) {
+            g.add(all.get(rand.nextInt(n)), all.get(rand.nextInt(n)));
+        }
+        List<Graph<Integer, NoLabel>.Vertex> sources =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int k = 0; k < 150; k += 1) {
+            sources.add(all.get(rand.nextInt(n)));
+        }
+        MultiSourceSearch<Integer, NoLabel> search =
+            new MultiSourceSearch<Integer, NoLabel>(g);
+        search.search(sources, true);
+        assertEquals("Error in source count", 150, search.sources());
+        Traversal<Integer, NoLabel> single = new Traversal<Integer, NoLabel>();
+        for (int k = 0; k < sources.size(); k += 1) {
+            single.directionOptimizingTraverse(g, sources.get(k));
+            BitVertexSet reached = search.reached(k);
+            for (Graph<Integer, NoLabel>.Vertex v : all) {
+                assertEquals("Error in hops", single.hops(v),
+                             search.hops(k, v));
+                assertEquals("Error in reaches", single.hops(v) >= 0,
+                             search.reaches(k, v));
+                assertEquals("Error in reached", single.hops(v) >= 0,
+                             reached.contains(v));
+            }
+        }
+        single.parallelBreadthFirstTraverse(g, sources.get(1));
+        single.directionOptimizingTraverse(g, sources.get(0));
+        for (Graph<Integer, NoLabel>.Vertex v : all) {
+            assertEquals("Error in hops after parallel", single.hops(v),
+                         search.hops(0, v));
+        }
+        search.search(sources.subList(0, 1), false);
+        assertTrue("Error in reaching self",
+                   search.reaches(0, sources.get(0)));
+    }
+
+    /** A traversal that records visits, rejecting the vertex labeled
+     *  _SKIP and the edge into the one after it and stopping at the one
+     *  labeled _STOP, with exceptions. */
+    private static class Thrower extends Recorder {
+        @Override
+        protected void visit(Graph<Integer, NoLabel>.Vertex v) {
+            super.visit(v);
+            if (v.getLabel() == _skip) {
+                throw new RejectException();
+            } else if (v.getLabel() == _stop) {
+                throw new StopException();
+            }
+        }
+
+        @Override
+        protected void preVisit(Graph<Integer, NoLabel>.Edge e,
+                                Graph<Integer, NoLabel>.Vertex v0) {
+            if (e.getV(v0).getLabel() == _skip + 1) {
+                throw new RejectException();
+            }
+        }
+
+        /** Labels of the vertices to reject and stop at. */
+        private int _skip = 3, _stop = 12;
+    }
+
+    /** A traversal that records visits like Thrower, with control
+     *  codes. */
+    private static class Returner extends Recorder {
+        @Override
+        protected Control onVisit(Graph<Integer, NoLabel>.Vertex v) {
+            visit(v);
+            if (v.getLabel() == _skip) {
+                return Control.SKIP;
+            } else if (v.getLabel() == _stop) {
+                return Control.STOP;
+            }
+            return Control.CONTINUE;
+        }
+
+        @Override
+        protected Control onPreVisit(Graph<Integer, NoLabel>.Edge e,
+                                     Graph<Integer, NoLabel>.Vertex v0) {
+            return e.getV(v0).getLabel() == _skip + 1 ? Control.SKIP
+                : Control.CONTINUE;
+        }
+
+        /** Labels of the vertices to reject and stop at. */
+        private int _skip = 3, _stop = 12;
+    }
+
+    @Test
+    public void testControlCodes() {
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < 16; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 1; i < 16; i += 1) {
+            g.add(all.get((i - 1) / 2), all.get(i));
+        }
+        Recorder depth0 = new Thrower(), breadth0 = new Thrower();
+        Recorder depth1 = new Returner(), breadth1 = new Returner();
+        depth0.depthFirstTraverse(g, all.get(0));
+        depth1.depthFirstTraverse(g, all.get(0));
+        assertEquals("Error in depth-first order", depth0._order.toString(),
+                     depth1._order.toString());
+        assertEquals("Error in depth-first stop", all.get(12),
+                     depth1.finalVertex());
+        depth1._order = new StringBuilder();
+        depth1.continueTraversing(all.get(1));
+        assertEquals("Error in continued order", "1 3 /3 /1 ",
+                     depth1._order.toString());
+        breadth0.breadthFirstTraverse(g, all.get(0));
+        breadth1.breadthFirstTraverse(g, all.get(0));
+        assertEquals("Error in breadth-first order",
+                     breadth0._order.toString(), breadth1._order.toString());
+        assertEquals("Error in breadth-first stop", breadth0.finalVertex(),
+                     breadth1.finalVertex());
+        Returner hybrid = new Returner();
+        hybrid._stop = -1;
+        hybrid.directionOptimizingTraverse(g, all.get(0));
+        assertEquals("Error in skipped hops", -1, hybrid.hops(all.get(7)));
+        assertEquals("Error in skipped edge", -1, hybrid.hops(all.get(4)));
+        assertEquals("Error in hops", 3, hybrid.hops(all.get(11)));
+    }
+
+    /** Returns the visits recorded in ORDER, without the postvisits. */
+    private static String visits(StringBuilder order) {
+        return order.toString().replaceAll("/[0-9]+ ", "");
+    }
+
+    /** Returns the labels of the vertices in ITER, as recorded by
+     *  Recorder. */
+    private static String labels(Iterable<Graph<Integer, NoLabel>.Vertex>
+                                 iter) {
+        StringBuilder result = new StringBuilder();
+        for (Graph<Integer, NoLabel>.Vertex v : iter) {
+            result.append(v.getLabel()).append(' ');
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testTraversalOrder() {
+        int n = 2000;
+        Random rand = new Random(61);
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 0; i < 3 * n; i += 1) {
+            g.add(all.get(rand.nextInt(n)), all.get(rand.nextInt(n)));
+        }
+        Recorder depth = new Recorder(), breadth = new Recorder();
+        depth.depthFirstTraverse(g, all.get(0));
+        breadth.breadthFirstTraverse(g, all.get(0));
+        assertEquals("Error in depth-first order", visits(depth._order),
+                     labels(TraversalOrder.depthFirst(g, all.get(0))));
+        assertEquals("Error in breadth-first order", visits(breadth._order),
+                     labels(TraversalOrder.breadthFirst(g, all.get(0))));
+
+        Comparator<Integer> backward = Collections.reverseOrder();
+        Graph<Integer, NoLabel> tree = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> nodes =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < 10; i += 1) {
+            nodes.add(tree.add(i));
+        }
+        tree.add(nodes.get(0), nodes.get(5));
+        tree.add(nodes.get(0), nodes.get(1));
+        tree.add(nodes.get(1), nodes.get(9));
+        tree.add(nodes.get(5), nodes.get(2));
+        assertEquals("Error in ordered traversal", "0 5 2 1 9 ",
+                     labels(TraversalOrder.ordered(tree, nodes.get(0),
+                                                   backward)));
+        List<Graph<Integer, NoLabel>.Vertex> top =
+            TraversalOrder.orderedStream(tree, nodes.get(0), backward)
+            .limit(2).collect(Collectors.toList());
+        assertEquals("Error in limit", 2, top.size());
+        assertEquals("Error in limit", nodes.get(5), top.get(1));
+        assertEquals("Error in stream count",
+                     visits(breadth._order).split(" ").length,
+                     TraversalOrder.depthFirstStream(g, all.get(0)).count());
+        assertEquals("Error in first", all.get(0),
+                     TraversalOrder.breadthFirstStream(g, all.get(0))
+                     .findFirst().get());
+
+        int m = 1000;
+        Graph<Integer, NoLabel> fan = new DirectedGraph<Integer, NoLabel>();
+        Graph<Integer, NoLabel>.Vertex root = fan.add(0),
+            hub = fan.add(m + 1);
+        for (int i = 1; i <= m; i += 1) {
+            Graph<Integer, NoLabel>.Vertex mid = fan.add(i);
+            fan.add(root, mid);
+            fan.add(mid, hub);
+        }
+        TraversalOrder.Walk<Integer, NoLabel> walk =
+            (TraversalOrder.Walk<Integer, NoLabel>)
+            TraversalOrder.ordered(fan, root,
+                                   Collections.reverseOrder(backward));
+        for (int i = 0; i <= m; i += 1) {
+            assertEquals("Error in ordered traversal", i,
+                         (int) walk.next().getLabel());
+            assertTrue("Error in fringe size",
+                       walk.fringeSize() <= m - i + 1);
+        }
+        assertEquals("Error in ordered traversal", hub, walk.next());
+        assertEquals("Error in fringe size", 0, walk.fringeSize());
+        assertFalse("Error in ordered traversal", walk.hasNext());
+    }
+
+    @Test
+    public void testStrongComponents() {
+        int n = 500;
+        Random rand = new Random(61);
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 0; i < n; i += 1) {
+            g.add(all.get(rand.nextInt(n)), all.get(rand.nextInt(n)));
+        }
+        StrongComponents<Integer, NoLabel> scc =
+            new StrongComponents<Integer, NoLabel>(g);
+        MultiSourceSearch<Integer, NoLabel> reach =
+            new MultiSourceSearch<Integer, NoLabel>(g);
+        reach.search(all, false);
+        for (int i = 0; i < n; i += 1) {
+            boolean onCycle = false;
+            for (Graph<Integer, NoLabel>.Vertex w : g.successors(all.get(i))) {
+                onCycle |= reach.reaches(w.getLabel(), all.get(i));
+            }
+            assertEquals("Error in cycle", onCycle, scc.isCyclic(all.get(i)));
+            for (int j = 0; j < n; j += 1) {
+                boolean mutual = reach.reaches(i, all.get(j))
+                    && reach.reaches(j, all.get(i));
+                assertEquals("Error in component", mutual,
+                             scc.component(all.get(i))
+                             == scc.component(all.get(j)));
+            }
+        }
+        for (Graph<Integer, NoLabel>.Edge e : g.edges()) {
+            assertTrue("Error in topological order",
+                       scc.component(e.getV0()) <= scc.component(e.getV1()));
+        }
+        DirectedGraph<Integer, NoLabel> dag = scc.condensation();
+        assertEquals("Error in condensation", scc.count(), dag.vertexSize());
+        assertFalse("Error in acyclic condensation",
+                    new StrongComponents<Integer, NoLabel>(dag).hasCycle());
+
+        int m = 200000;
+        Graph<Integer, NoLabel> ring = new DirectedGraph<Integer, NoLabel>();
+        Graph<Integer, NoLabel>.Vertex first = ring.add(0), prev = first;
+        for (int i = 1; i < m; i += 1) {
+            Graph<Integer, NoLabel>.Vertex next = ring.add(i);
+            ring.add(prev, next);
+            prev = next;
+        }
+        assertFalse("Error in long chain",
+                    new StrongComponents<Integer, NoLabel>(ring).hasCycle());
+        ring.add(prev, first);
+        StrongComponents<Integer, NoLabel> loop =
+            new StrongComponents<Integer, NoLabel>(ring);
+        assertEquals("Error in long cycle", 1, loop.count());
+        assertTrue("Error in long cycle", loop.isCyclic(prev));
+    }
+
+    @Test
+    public void testTopologicalSort() {
+        int n = 1000;
+        Random rand = new Random(61);
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+        }
+        for (int i = 0; i < 3 * n; i += 1) {
+            int a = rand.nextInt(n), b = rand.nextInt(n);
+            if (a != b) {
+                g.add(all.get(Math.max(a, b)), all.get(Math.min(a, b)));
+            }
+        }
+        List<Graph<Integer, NoLabel>.Vertex> order = Graphs.topologicalSort(g);
+        assertEquals("Error in sort size", n, order.size());
+        int[] position = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            position[order.get(i).getLabel()] = i;
+        }
+        List<List<Graph<Integer, NoLabel>.Vertex>> levels =
+            Graphs.topologicalLevels(g);
+        int[] level = new int[n];
+        int count = 0;
+        for (int k = 0; k < levels.size(); k += 1) {
+            for (Graph<Integer, NoLabel>.Vertex v : levels.get(k)) {
+                level[v.getLabel()] = k;
+                count += 1;
+            }
+        }
+        assertEquals("Error in levels size", n, count);
+        for (Graph<Integer, NoLabel>.Vertex v : all) {
+            int deepest = -1;
+            for (Graph<Integer, NoLabel>.Vertex u : g.predecessors(v)) {
+                assertTrue("Error in sort", position[u.getLabel()]
+                           < position[v.getLabel()]);
+                deepest = Math.max(deepest, level[u.getLabel()]);
+            }
+            assertEquals("Error in level", deepest + 1, level[v.getLabel()]);
+        }
+
+        g.add(all.get(0), all.get(1));
+        g.add(all.get(1), all.get(0));
+        assertEquals("Error in cycle", null, Graphs.topologicalSort(g));
+        assertEquals("Error in cycle", null, Graphs.topologicalLevels(g));
+        Graph<Integer, NoLabel> loop = new DirectedGraph<Integer, NoLabel>();
+        loop.add(loop.add(0), loop.add(1));
+        assertEquals("Error in sort", 2, Graphs.topologicalSort(loop).size());
+        Graph<Integer, NoLabel>.Vertex self = loop.add(2);
+        loop.add(self, self);
+        assertEquals("Error in self loop", null, Graphs.topologicalSort(loop));
+        Graph<Integer, NoLabel> undirected =
+            new UndirectedGraph<Integer, NoLabel>();
+        undirected.add(undirected.add(0), undirected.add(1));
+        assertEquals("Error in undirected", null,
+                     Graphs.topologicalSort(undirected));
+    }
+
+    @Test
+    public void testHopPath() {
+        int n = 2000;
+        Random rand = new Random(61);
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        Graph<Integer, NoLabel> u = new UndirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        List<Graph<Integer, NoLabel>.Vertex> uall =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i));
+            uall.add(u.add(i));
+        }
+        for (int i = 0; i < 2 * n; i += 1) {
+            int a = rand.nextInt(n), b = rand.nextInt(n);
+            g.add(all.get(a), all.get(b));
+            if (i % 2 == 0) {
+                u.add(uall.get(a), uall.get(b));
+            }
+        }
+        checkHopPaths(g, all, rand);
+        checkHopPaths(u, uall, rand);
+        Graph<Integer, NoLabel> frozen = g.freeze();
+        List<Graph<Integer, NoLabel>.Vertex> fall =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (Graph<Integer, NoLabel>.Vertex v : frozen.vertices()) {
+            fall.add(v);
+        }
+        checkHopPaths(frozen, fall, rand);
+        assertEquals("Error in path to self", 0,
+                     Graphs.hopPath(g, all.get(0), all.get(0)).size());
+    }
+
+    /** Check hopPath and hops between random vertices of G, whose
+     *  vertices are ALL, against breadth-first search, using RAND. */
+    private void checkHopPaths(Graph<Integer, NoLabel> g,
+                               List<Graph<Integer, NoLabel>.Vertex> all,
+                               Random rand) {
+        HopSearch<Integer, NoLabel> search =
+            new HopSearch<Integer, NoLabel>(g);
+        Traversal<Integer, NoLabel> bfs = new Traversal<Integer, NoLabel>();
+        int unreached = 0;
+        for (int q = 0; q < 200; q += 1) {
+            Graph<Integer, NoLabel>.Vertex v0 =
+                all.get(rand.nextInt(all.size()));
+            Graph<Integer, NoLabel>.Vertex v1 =
+                all.get(rand.nextInt(all.size()));
+            bfs.directionOptimizingTraverse(g, v0);
+            List<Graph<Integer, NoLabel>.Edge> path = search.hopPath(v0, v1);
+            assertEquals("Error in hops", bfs.hops(v1), search.hops(v0, v1));
+            if (bfs.hops(v1) < 0) {
+                assertEquals("Error in unreachable path", null, path);
+                unreached += 1;
+                continue;
+            }
+            assertEquals("Error in path length", bfs.hops(v1), path.size());
+            Graph<Integer, NoLabel>.Vertex v = v0;
+            for (Graph<Integer, NoLabel>.Edge e : path) {
+                assertTrue("Error in path edge", e.getV0() == v
+                           || !g.isDirected() && e.getV1() == v);
+                v = e.getV(v);
+            }
+            assertEquals("Error in path end", v1, v);
+        }
+        assertTrue("Error in test graph", unreached > 0 && unreached < 200);
+    }
+
+    @Test
+    public void testOrderedTraverse() {
+        int n = 3000;
+        Random rand = new Random(61);
+        Graph<Integer, NoLabel> g = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> all =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            all.add(g.add(i * 7919 % n));
+        }
+        for (int i = 0; i < 10 * n; i += 1) {
+            g.add(all.get(rand.nextInt(n)), all.get(rand.nextInt(n)));
+        }
+        Comparator<Integer> order = Collections.reverseOrder();
+        Weighting<Integer> key = new Weighting<Integer>() {
+            @Override
+            public double weight(Integer label) {
+                return -label;
+            }
+        };
+        Recorder compared = new Recorder(), keyed = new Recorder();
+        compared.traverse(g, all.get(0), order);
+        keyed.traverse(g, all.get(0), key);
+        String expected = labels(TraversalOrder.ordered(g, all.get(0), order));
+        assertEquals("Error in comparator order", expected,
+                     compared._order.toString());
+        assertEquals("Error in key order", expected, keyed._order.toString());
+
+        Graph<Integer, NoLabel> tree = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> nodes =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < 8; i += 1) {
+            nodes.add(tree.add(i));
+        }
+        for (int i = 1; i < 8; i += 1) {
+            tree.add(nodes.get((i - 1) / 2), nodes.get(i));
+        }
+        Thrower thrower = new Thrower();
+        thrower._skip = 2;
+        thrower._stop = 4;
+        thrower.traverse(tree, nodes.get(0), order);
+        assertEquals("Error in rejection", "0 2 1 4 ",
+                     ((Recorder) thrower)._order.toString());
+        assertEquals("Error in stop", nodes.get(4), thrower.finalVertex());
+        thrower._stop = -1;
+        thrower.continueTraversing(nodes.get(5));
+        assertEquals("Error in continuing", "0 2 1 4 5 ",
+                     ((Recorder) thrower)._order.toString());
+    }
+
+    @Test
+    public void testTraversalLimits() {
+        Graph<Integer, NoLabel> tree = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> nodes =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < 31; i += 1) {
+            nodes.add(tree.add(i));
+        }
+        for (int i = 1; i < 31; i += 1) {
+            tree.add(nodes.get((i - 1) / 2), nodes.get(i));
+        }
+        Recorder breadth = new Recorder();
+        breadth.setLimits(2, -1, -1);
+        breadth.breadthFirstTraverse(tree, nodes.get(0));
+        assertEquals("Error in depth limit", "0 1 2 3 4 5 6 ",
+                     visits(breadth._order));
+        assertFalse("Error in limited", breadth.limited());
+        assertEquals("Error in frontier", "7 8 9 10 11 12 13 14 ",
+                     labels(breadth.frontier()));
+        breadth.clearLimits();
+        for (Graph<Integer, NoLabel>.Vertex v : breadth.frontier()) {
+            breadth.continueTraversing(v);
+        }
+        assertEquals("Error in resumed count", 31,
+                     visits(breadth._order).split(" ").length);
+        assertTrue("Error in resumed frontier", breadth.frontier().isEmpty());
+
+        Recorder whole = new Recorder(), depth = new Recorder();
+        whole.depthFirstTraverse(tree, nodes.get(0));
+        String[] expected = visits(whole._order).split(" ");
+        depth.setLimits(-1, 5, -1);
+        depth.depthFirstTraverse(tree, nodes.get(0));
+        assertTrue("Error in limited", depth.limited());
+        assertEquals("Error in visit limit", 5,
+                     visits(depth._order).split(" ").length);
+        assertEquals("Error in frontier", expected[5],
+                     depth.frontier().get(0).getLabel().toString());
+        while (!depth.frontier().isEmpty()) {
+            int before = visits(depth._order).length();
+            depth.continueTraversing(depth.frontier().get(0));
+            String added = visits(depth._order).substring(before);
+            assertTrue("Error in visit limit",
+                       added.split(" ").length <= 5);
+        }
+        assertEquals("Error in resumed order", visits(whole._order),
+                     visits(depth._order));
+        assertFalse("Error in limited", depth.limited());
+
+        Recorder timed = new Recorder();
+        timed.setLimits(-1, -1, 0);
+        timed.depthFirstTraverse(tree, nodes.get(0));
+        assertTrue("Error in time limit", timed.limited());
+        assertEquals("Error in time limit", "", timed._order.toString());
+        assertEquals("Error in frontier", "0 ", labels(timed.frontier()));
+
+        Weighting<Integer> key = new Weighting<Integer>() {
+            @Override
+            public double weight(Integer label) {
+                return -label;
+            }
+        };
+        Recorder ordered = new Recorder();
+        ordered.setLimits(1, -1, -1);
+        ordered.traverse(tree, nodes.get(0), key);
+        assertEquals("Error in ordered depth limit", "0 2 1 ",
+                     ordered._order.toString());
+        assertEquals("Error in ordered frontier", "5 6 3 4 ",
+                     labels(ordered.frontier()));
+    }
+
+    @Test
+    public void testContinuing() {
+        Graph<Integer, NoLabel> tree = new DirectedGraph<Integer, NoLabel>();
+        List<Graph<Integer, NoLabel>.Vertex> nodes =
+            new ArrayList<Graph<Integer, NoLabel>.Vertex>();
+        for (int i = 0; i < 7; i += 1) {
+            nodes.add(tree.add(i));
+        }
+        for (int i = 1; i < 7; i += 1) {
+            tree.add(nodes.get((i - 1) / 2), nodes.get(i));
+        }
+        Recorder depth = new Recorder();
+        depth.depthFirstTraverse(tree, nodes.get(1));
+        depth._order = new StringBuilder();
+        depth.continueTraversing(nodes.get(0));
+        assertEquals("Error in continuing finished traversal",
+                     "0 2 6 /6 5 /5 /2 /0 ", depth._order.toString());
+
+        Returner stopped = new Returner();
+        stopped._skip = -2;
+        stopped._stop = 2;
+        stopped.depthFirstTraverse(tree, nodes.get(0));
+        assertEquals("Error in stop", nodes.get(2), stopped.finalVertex());
+        stopped._stop = -1;
+        ((Recorder) stopped)._order = new StringBuilder();
+        stopped.breadthFirstTraverse(tree, nodes.get(0));
+        assertEquals("Error in fresh traversal after stop", null,
+                     stopped.finalVertex());
+        assertEquals("Error in fresh traversal after stop", 7,
+                     visits(((Recorder) stopped)._order).split(" ").length);
+
+        Recorder breadth = new Recorder();
+        try {
+            breadth.continueTraversing(nodes.get(0));
+            fail("Error in continuing nothing");
+        } catch (IllegalStateException e) {
+            assertEquals("Error in continuing nothing", "",
+                         breadth._order.toString());
+        }
+    }
+}
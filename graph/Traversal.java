@@ -2,9 +2,15 @@ package graph;
 
 import java.util.Comparator;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Stack;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /** Implements a generalized traversal of a graph.  At any given time,
  *  there is a particular set of untraversed vertices---the "fringe."
@@ -24,6 +30,11 @@ import java.util.PriorityQueue;
  *     + A general traversal treats the fringe as an ordered set, as
  *       determined by a Comparator argument.  There is no postVisit
  *       for this type of traversal.
+ *     + A parallel breadth-first traversal visits the fringe one level
+ *       (set of vertices at the same number of edges from the start) at
+ *       a time, expanding each level with several threads at once.  The
+ *       order of visits within a level is undefined, and there is no
+ *       postVisit for this type of traversal.
  *  As vertices are added to the fringe, the traversal calls a
  *  preVisit method on the vertex.
  *
@@ -34,6 +45,19 @@ import java.util.PriorityQueue;
  *  RejectException to prevent a vertex from being added to the
  *  fringe, and the visit method may throw a RejectException to
  *  prevent its successors from being added to the fringe.
+ *
+ *  Alternatively, the client may override onVisit, onPreVisit, and
+ *  onPostVisit, which have the same roles but report what to do next by
+ *  returning a Control (CONTINUE, SKIP, or STOP) rather than by throwing
+ *  an exception.  This is cheaper when vertices are often rejected or
+ *  traversals often stopped.  The traversals call only these methods;
+ *  by default, they call visit, preVisit, and postVisit, translating
+ *  RejectException to SKIP and StopException to STOP.
+ *
+ *  To bound its cost, a traversal may be limited in depth, number of
+ *  visits, and time with setLimits.  Afterwards, frontier() reports the
+ *  vertices it reached but did not visit, from which continueTraversing
+ *  can resume it later.
  *  @author Scott Lee
  */
 public class Traversal<VLabel, ELabel> {
@@ -46,85 +70,108 @@ public class Traversal<VLabel, ELabel> {
     public void traverse(Graph<VLabel, ELabel> G,
                          Graph<VLabel, ELabel>.Vertex v,
                          Comparator<VLabel> order) {
-        if (!_traversalsearch) {
-            _visited.clear();
+        if (_compared == null || _compared._order != order) {
+            _compared = new ComparedFringe(order);
         }
+        orderedTraverse(G, v, _compared, true);
+    }
+
+    /** Perform a traversal of G over all vertices reachable from V, as for
+     *  traverse(G, V, ORDER), visiting next at each step the vertex in the
+     *  fringe whose label has the smallest KEY.  This avoids the cost of
+     *  calling a Comparator on labels.  The effect of keys that change
+     *  during the traversal is undefined. */
+    public void traverse(Graph<VLabel, ELabel> G,
+                         Graph<VLabel, ELabel>.Vertex v,
+                         Weighting<? super VLabel> key) {
+        if (_keyed == null || _keyed._key != key) {
+            _keyed = new KeyedFringe(key);
+        }
+        orderedTraverse(G, v, _keyed, true);
+    }
+
+    /** Perform a traversal of G over all vertices reachable from V, taking
+     *  vertices from FRINGE.  Unless FRESH, continue the last traversal,
+     *  skipping the vertices it visited. */
+    private void orderedTraverse(Graph<VLabel, ELabel> G,
+                                 Graph<VLabel, ELabel>.Vertex v,
+                                 OrderedFringe fringe, boolean fresh) {
+        start(G, Kind.ORDERED, fresh);
+        _ordered = fringe;
+        fringe.clear();
         if (_visited.contains(v)) {
-            _traversalsearch = false;
             return;
         }
-        boolean stop = false;
-        PriorityQueue<Graph<VLabel, ELabel>.Vertex> queue = new
-                PriorityQueue<Graph<VLabel, ELabel>.Vertex>(
-                _graph.vertexSize(), new Comparer(order));
-        _graph = G;
-        _comparer = order;
-        _traversalsearch = true;
-        queue.add(v);
-        while (!queue.isEmpty()) {
-            _visited.add(queue.peek());
-            try {
-                visit(queue.peek());
-            } catch (StopException traversalStop) {
+        fringe.add(v);
+        while (!fringe.isEmpty()) {
+            if (exhausted()) {
+                return;
+            }
+            Graph<VLabel, ELabel>.Vertex current = fringe.poll();
+            _visited.add(current);
+            _visits += 1;
+            Control control = onVisit(current);
+            if (control == Control.STOP) {
                 _finalEdge = null;
-                _finalVertex = queue.peek();
+                _finalVertex = current;
                 return;
-            } catch (RejectException traversalReject) {
-                stop = true;
+            } else if (control == Control.SKIP) {
+                continue;
             }
-            if (!stop) {
-                Graph<VLabel, ELabel>.Vertex current = queue.poll();
-                for (Graph<VLabel, ELabel>.Edge edge : G.outEdges(current)) {
-                    if (!_visited.contains(edge.getV(current))) {
-                        try {
-                            preVisit(edge, edge.getV(current));
-                            queue.add(edge.getV(current));
-                        } catch (StopException terminate) {
-                            return;
-                        } catch (RejectException terminate) {
-                            return;
-                        }
-                    }
+            int depth = depth(current) + 1;
+            int degree = G.outDegree(current);
+            for (int k = 0; k < degree; k += 1) {
+                Graph<VLabel, ELabel>.Edge edge = G.outEdge(current, k);
+                Graph<VLabel, ELabel>.Vertex next = edge.getV(current);
+                if (_visited.contains(next) || fringe.contains(next)) {
+                    continue;
+                }
+                Control pre = onPreVisit(edge, current);
+                if (pre == Control.STOP) {
+                    _finalEdge = edge;
+                    _finalVertex = next;
+                    return;
+                } else if (pre == Control.CONTINUE && !beyond(next, depth)) {
+                    fringe.add(next);
                 }
-            } else {
-                queue.poll();
             }
         }
-        _traversalsearch = false;
     }
 
     /** Helper for depthFirstTraverse that iterates over the graph GRAPH with
      *  the post visit stack STACK. */
     public void depthFirstHelper(Graph<VLabel, ELabel> graph,
             Stack<Graph<VLabel, ELabel>.Vertex> stack) {
-        boolean stop = false;
         while (!stack.empty()) {
             if (!_visited.contains(stack.peek())) {
-                _visited.add(stack.peek());
-                try {
-                    visit(stack.peek());
-                } catch (StopException depthStop) {
+                if (exhausted()) {
+                    return;
+                }
+                Graph<VLabel, ELabel>.Vertex current = stack.peek();
+                _visited.add(current);
+                _visits += 1;
+                Control control = onVisit(current);
+                if (control == Control.STOP) {
                     _finalEdge = null;
-                    _finalVertex = stack.peek();
+                    _finalVertex = current;
                     return;
-                } catch (RejectException depthReject) {
-                    stop = true;
                 }
-                if (!stop) {
-                    Graph<VLabel, ELabel>.Vertex current = stack.peek();
-                    for (Graph<VLabel, ELabel>.Edge edge
-                            : graph.outEdges(current)) {
-                        if (!_visited.contains(edge.getV(current))) {
-                            try {
-                                preVisit(edge, current);
-                                stack.addElement(edge.getV(current));
-                            } catch (StopException depthStop) {
+                if (control != Control.SKIP) {
+                    int depth = depth(current) + 1;
+                    for (int k = 0; k < graph.outDegree(current); k += 1) {
+                        Graph<VLabel, ELabel>.Edge edge =
+                            graph.outEdge(current, k);
+                        Graph<VLabel, ELabel>.Vertex next =
+                            edge.getV(current);
+                        if (!_visited.contains(next)) {
+                            Control pre = onPreVisit(edge, current);
+                            if (pre == Control.STOP) {
                                 _finalEdge = edge;
-                                _finalVertex =
-                                        edge.getV(edge.getV(current));
+                                _finalVertex = current;
                                 return;
-                            } catch (RejectException depthReject) {
-                                continue;
+                            } else if (pre == Control.CONTINUE
+                                       && !beyond(next, depth)) {
+                                stack.addElement(next);
                             }
                         }
                     }
@@ -135,7 +182,6 @@ public class Traversal<VLabel, ELabel> {
                         }
                     }
                     stack.pop();
-                    stop = false;
                 }
             } else {
                 if (!_depthpost.contains(stack.peek())) {
@@ -146,22 +192,17 @@ public class Traversal<VLabel, ELabel> {
                 stack.pop();
             }
         }
-        _depthsearch = false;
     }
 
     /** Helper for a depthFirstTraverse that performs a visit on the first
-     *  element of post visit stack STACK. Returns 0 for a StopException and
-     *  1 otherwise. */
+     *  element of post visit stack STACK. Returns 0 if the traversal is to
+     *  stop and 1 otherwise. */
     public int depthPoster(Stack<Graph<VLabel, ELabel>.Vertex> stack) {
         _depthpost.add(stack.peek());
-        try {
-            postVisit(stack.peek());
-        } catch (StopException depthStop) {
+        if (onPostVisit(stack.peek()) == Control.STOP) {
             _finalEdge = null;
             _finalVertex = stack.pop();
             return 0;
-        } catch (RejectException depthReject) {
-            return 1;
         }
         return 1;
     }
@@ -173,20 +214,23 @@ public class Traversal<VLabel, ELabel> {
      *  the postVisit method on it. */
     public void depthFirstTraverse(Graph<VLabel, ELabel> G,
                                    Graph<VLabel, ELabel>.Vertex v) {
-        if (!_depthsearch) {
+        depthFirst(G, v, true);
+    }
+
+    /** Perform a depth-first traversal of G from V.  Unless FRESH,
+     *  continue the last one, skipping the vertices it visited. */
+    private void depthFirst(Graph<VLabel, ELabel> G,
+                            Graph<VLabel, ELabel>.Vertex v, boolean fresh) {
+        start(G, Kind.DEPTH, fresh);
+        if (fresh) {
             _depthpost.clear();
-            _visited.clear();
         }
+        _stack = new Stack<Graph<VLabel, ELabel>.Vertex>();
         if (_visited.contains(v)) {
-            _depthsearch = false;
             return;
         }
-        Stack<Graph<VLabel, ELabel>.Vertex> stack = new
-                Stack<Graph<VLabel, ELabel>.Vertex>();
-        stack.addElement(v);
-        _graph = G;
-        _depthsearch = true;
-        depthFirstHelper(G, stack);
+        _stack.addElement(v);
+        depthFirstHelper(G, _stack);
     }
 
     /** A helper for breadthFirstTravere that takes in the graph GRAPH that
@@ -195,63 +239,64 @@ public class Traversal<VLabel, ELabel> {
     public void breadthHelper(Graph<VLabel, ELabel> graph,
             LinkedList<Graph<VLabel, ELabel>.Vertex> fringer) {
         int index = 0;
-        boolean stop = false;
         while (fringer.peekFirst() != null) {
-            if (_breadthpost.contains(fringer.peek())) {
-                try {
-                    postVisit(fringer.peek());
-                } catch (StopException breadthStop) {
-                    _breadthpost.clear();
+            if (_breadthposted.contains(fringer.peek())) {
+                if (onPostVisit(fringer.peek()) == Control.STOP) {
+                    clearBreadthPost();
                     _finalEdge = null;
                     _finalVertex = fringer.pop();
                     return;
-                } catch (RejectException breadthReject) {
-                    continue;
                 }
                 fringer.removeFirst();
             } else {
-                try {
-                    _visited.add(fringer.peek());
-                    visit(fringer.peek());
-                } catch (StopException breadthStop) {
-                    _breadthpost.clear();
+                if (exhausted()) {
+                    clearBreadthPost();
+                    return;
+                }
+                Graph<VLabel, ELabel>.Vertex current = fringer.removeFirst();
+                _visited.add(current);
+                _visits += 1;
+                Control control = onVisit(current);
+                if (control == Control.STOP) {
+                    clearBreadthPost();
                     _finalEdge = null;
-                    _finalVertex = fringer.removeFirst();
+                    _finalVertex = current;
                     return;
-                } catch (RejectException breadthReject) {
-                    stop = true;
                 }
-                _breadthpost.add(fringer.peek());
-                if (!stop) {
-                    Graph<VLabel, ELabel>.Vertex current =
-                            fringer.removeFirst();
-                    for (Graph<VLabel, ELabel>.Edge e
-                            : graph.outEdges(current)) {
-                        if (!_visited.contains(e.getV(current))) {
-                            try {
-                                preVisit(e, current);
-                                if (!_breadthpre.contains(e.getV(current))) {
-                                    fringer.add(e.getV(current));
-                                    _breadthpre.add(e.getV(current));
-                                }
-                            } catch (StopException breadthStop) {
-                                _breadthpost.clear();
+                _breadthpost.add(current);
+                _breadthposted.add(current);
+                if (control != Control.SKIP) {
+                    int depth = depth(current) + 1;
+                    for (int k = 0; k < graph.outDegree(current); k += 1) {
+                        Graph<VLabel, ELabel>.Edge e =
+                            graph.outEdge(current, k);
+                        Graph<VLabel, ELabel>.Vertex next = e.getV(current);
+                        if (!_visited.contains(next)) {
+                            Control pre = onPreVisit(e, current);
+                            if (pre == Control.STOP) {
+                                clearBreadthPost();
                                 _finalEdge = e;
-                                _finalVertex = e.getV(current);
+                                _finalVertex = next;
                                 return;
-                            } catch (RejectException breadthReject) {
-                                continue;
+                            } else if (pre == Control.CONTINUE
+                                       && !_breadthpre.contains(next)
+                                       && !beyond(next, depth)) {
+                                fringer.add(next);
+                                _breadthpre.add(next);
                             }
                         }
                     }
-                } else {
-                    fringer.removeFirst();
                 }
                 fringer.add(_breadthpost.get(index));
                 index++;
             }
         }
-        _breadthsearch = false;
+    }
+
+    /** Empty the breadth-first postvisit list. */
+    private void clearBreadthPost() {
+        _breadthpost.clear();
+        _breadthposted.clear();
     }
 
     /** Performs a breadth-first traversal of G over all vertices
@@ -262,53 +307,540 @@ public class Traversal<VLabel, ELabel> {
      *  the postVisit method on it. */
     public void breadthFirstTraverse(Graph<VLabel, ELabel> G,
                                      Graph<VLabel, ELabel>.Vertex v) {
-        if (!_breadthsearch) {
-            _breadthpost.clear();
-            _visited.clear();
+        breadthFirst(G, v, true);
+    }
+
+    /** Perform a breadth-first traversal of G from V.  Unless FRESH,
+     *  continue the last one, skipping the vertices it visited. */
+    private void breadthFirst(Graph<VLabel, ELabel> G,
+                              Graph<VLabel, ELabel>.Vertex v, boolean fresh) {
+        start(G, Kind.BREADTH, fresh);
+        if (fresh) {
+            _breadthpre.clear();
         }
+        clearBreadthPost();
+        _fringer = new LinkedList<Graph<VLabel, ELabel>.Vertex>();
         if (_visited.contains(v)) {
-            _breadthsearch = false;
             return;
         }
-        _breadthsearch = true;
+        _fringer.add(v);
+        breadthHelper(G, _fringer);
+    }
+
+    /** Prepare for a traversal of G of kind KIND.  If FRESH, forget any
+     *  earlier traversal; otherwise, continue the last one, keeping its
+     *  visited vertices and carrying over its frontier. */
+    private void start(Graph<VLabel, ELabel> G, Kind kind, boolean fresh) {
+        if (fresh) {
+            _visited.clear();
+            _carried = Collections.emptyList();
+        } else {
+            _carried = frontier();
+        }
+        _graph = G;
+        _kind = kind;
+        _finalVertex = null;
+        _finalEdge = null;
+        _frontier = null;
+        _limited = false;
+        _visits = 0;
+        _beyond.clear();
+        _depth.clear();
+        if (_maxNanos >= 0) {
+            _deadline = System.nanoTime() + _maxNanos;
+        }
+    }
+
+    /** Returns true iff the current traversal may visit no more vertices
+     *  because of its visit or time limit, noting that it was limited if
+     *  so. */
+    private boolean exhausted() {
+        if (_maxVisits >= 0 && _visits >= _maxVisits
+            || _maxNanos >= 0 && System.nanoTime() - _deadline >= 0) {
+            _limited = true;
+            return true;
+        }
+        return false;
+    }
+
+    /** Returns the number of edges by which the current traversal reached
+     *  V from its start, if there is a depth limit, and otherwise 0. */
+    private int depth(Graph<VLabel, ELabel>.Vertex v) {
+        return _maxDepth < 0 ? 0 : _depth.get(v);
+    }
+
+    /** Returns true iff a vertex reached by DEPTH edges lies beyond the
+     *  depth limit, in which case W is added to the frontier instead of
+     *  the fringe.  Otherwise, records that W was reached by DEPTH
+     *  edges. */
+    private boolean beyond(Graph<VLabel, ELabel>.Vertex w, int depth) {
+        if (_maxDepth < 0) {
+            return false;
+        } else if (depth > _maxDepth) {
+            _beyond.add(w);
+            return true;
+        }
+        _depth.put(w, depth);
+        return false;
+    }
+
+    /** Limit each later traversal by depthFirstTraverse,
+     *  breadthFirstTraverse, traverse, and continueTraversing to vertices
+     *  at most MAXDEPTH edges from its starting vertex (counting the edges
+     *  by which the traversal reached them), to at most MAXVISITS visits,
+     *  and to MAXNANOS nanoseconds.  A negative value means no limit.
+     *  Vertices beyond the depth limit are left unvisited, while reaching
+     *  the visit or time limit ends the traversal at once, before the
+     *  next visit, much as STOP does.  Either way, frontier() gives the
+     *  vertices left over.  Limits do not apply to parallel or
+     *  direction-optimizing traversals. */
+    public void setLimits(int maxDepth, int maxVisits, long maxNanos) {
+        _maxDepth = maxDepth;
+        _maxVisits = maxVisits;
+        _maxNanos = maxNanos;
+    }
+
+    /** Remove the limits set by setLimits. */
+    public void clearLimits() {
+        setLimits(-1, -1, -1);
+    }
+
+    /** Returns true iff the last traversal ended because it reached its
+     *  visit or time limit. */
+    public boolean limited() {
+        return _limited;
+    }
+
+    /** Returns the vertices that the last traversal by depthFirstTraverse,
+     *  breadthFirstTraverse, traverse, or continueTraversing reached but
+     *  did not visit, because it ended early or they lay beyond the depth
+     *  limit, together with those left over from the traversals it
+     *  continued.  Those it would have visited next come first.  Calling
+     *  continueTraversing on each vertex of the frontier in turn (checking
+     *  the frontier again after each call, if there are limits) completes
+     *  the traversal.  The frontier is empty after a traversal that
+     *  finished without limits or STOP. */
+    public List<Graph<VLabel, ELabel>.Vertex> frontier() {
+        if (_frontier == null) {
+            _frontier = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+            _listed.clear();
+            if (_kind == Kind.DEPTH) {
+                for (int i = _stack.size() - 1; i >= 0; i -= 1) {
+                    list(_stack.get(i));
+                }
+            } else if (_kind == Kind.BREADTH) {
+                for (Graph<VLabel, ELabel>.Vertex v : _fringer) {
+                    list(v);
+                }
+            } else if (_kind == Kind.ORDERED) {
+                while (!_ordered.isEmpty()) {
+                    list(_ordered.poll());
+                }
+            }
+            for (Graph<VLabel, ELabel>.Vertex v : _beyond) {
+                list(v);
+            }
+            for (Graph<VLabel, ELabel>.Vertex v : _carried) {
+                list(v);
+            }
+        }
+        return _frontier;
+    }
+
+    /** Add V to _FRONTIER if it is unvisited and not already there. */
+    private void list(Graph<VLabel, ELabel>.Vertex v) {
+        if (!_visited.contains(v) && _listed.add(v)) {
+            _frontier.add(v);
+        }
+    }
+
+    /** Performs a parallel breadth-first traversal of G over all vertices
+     *  reachable from V, using the common fork-join pool.  See the
+     *  three-argument version. */
+    public void parallelBreadthFirstTraverse(Graph<VLabel, ELabel> G,
+                                             Graph<VLabel, ELabel>.Vertex v) {
+        parallelBreadthFirstTraverse(G, v, ForkJoinPool.commonPool());
+    }
+
+    /** Performs a breadth-first traversal of G over all vertices reachable
+     *  from V, expanding each level of the fringe with tasks in POOL.  Every
+     *  vertex at K edges from V is visited before any vertex at K + 1, but
+     *  the order within a level is undefined, and onVisit and onPreVisit
+     *  (and so visit and preVisit) may be called from several threads at
+     *  once, so they must be safe for that.  STOP and SKIP have their
+     *  usual effects, except that STOP may let other calls already in
+     *  progress finish, and onPostVisit is never called.  G must not be
+     *  modified during the traversal.  Afterwards, hops reports how far
+     *  from V each vertex was reached.  This does not affect, and cannot
+     *  be continued by, continueTraversing. */
+    public void parallelBreadthFirstTraverse(Graph<VLabel, ELabel> G,
+                                             Graph<VLabel, ELabel>.Vertex v,
+                                             ForkJoinPool pool) {
+        int bound = G.vertexIdBound();
         _graph = G;
-        LinkedList<Graph<VLabel, ELabel>.Vertex> fringer = new
-                LinkedList<Graph<VLabel, ELabel>.Vertex>();
-        fringer.add(v);
-        breadthHelper(G, fringer);
+        _finalVertex = null;
+        _finalEdge = null;
+        _halted = false;
+        _hops = new AtomicIntegerArray(bound);
+        _hopsListed = false;
+        _level = newVertexArray(bound);
+        _next = newVertexArray(bound);
+        _nextSize = new AtomicInteger();
+        _hops.set(v.id(), 1);
+        _level[0] = v;
+        int size = 1;
+        for (int mark = 2; size > 0 && !_halted; mark += 1) {
+            _nextSize.set(0);
+            if (size <= PARALLEL_GRAIN) {
+                expand(0, size, mark);
+            } else {
+                pool.invoke(new Expander(0, size, mark));
+            }
+            Graph<VLabel, ELabel>.Vertex[] level = _level;
+            _level = _next;
+            _next = level;
+            size = _nextSize.get();
+        }
+        _level = _next = null;
+    }
+
+    /** Performs a breadth-first traversal of G over all vertices reachable
+     *  from V, a level at a time, switching between expanding the current
+     *  level forward along out-edges (top-down) and scanning the
+     *  untraversed vertices backward along in-edges for one whose
+     *  predecessor is in the current level (bottom-up), whichever should
+     *  examine fewer edges.  Every vertex at K edges from V is visited
+     *  before any vertex at K + 1, and onPreVisit is called on the edge
+     *  through which a vertex is added, but the order within a level is
+     *  undefined and onPostVisit is never called.  STOP and SKIP
+     *  otherwise have their usual effects.  Afterwards,
+     *  hops reports how far from V each vertex was reached.  This does
+     *  not affect, and cannot be continued by, continueTraversing. */
+    public void directionOptimizingTraverse(Graph<VLabel, ELabel> G,
+                                            Graph<VLabel, ELabel>.Vertex v) {
+        _graph = G;
+        _finalVertex = null;
+        _finalEdge = null;
+        int bound = G.vertexIdBound();
+        if (_hops == null || _hops.length() < bound || !_hopsListed) {
+            _hops = new AtomicIntegerArray(bound);
+        } else {
+            for (Graph<VLabel, ELabel>.Vertex w : _reached) {
+                _hops.set(w.id(), 0);
+            }
+        }
+        _hopsListed = true;
+        _reached.clear();
+        ArrayList<Graph<VLabel, ELabel>.Vertex> live =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+        long unexplored = G.isDirected() ? G.edgeSize() : 2L * G.edgeSize();
+        _hops.lazySet(v.id(), 1);
+        unexplored -= G.inDegree(v);
+        _reached.add(v);
+        boolean bottomUp = false;
+        int lo = 0, hi = 1, previous = 0;
+        for (int mark = 2; lo < hi; mark += 1) {
+            long frontier = 0;
+            live.clear();
+            for (int i = lo; i < hi; i += 1) {
+                Graph<VLabel, ELabel>.Vertex current = _reached.get(i);
+                Control control = onVisit(current);
+                if (control == Control.STOP) {
+                    _finalVertex = current;
+                    return;
+                } else if (control == Control.SKIP) {
+                    continue;
+                }
+                live.add(current);
+                frontier += G.outDegree(current);
+            }
+            if (!bottomUp) {
+                bottomUp = hi - lo > previous
+                    && frontier > unexplored / TOP_DOWN_FACTOR;
+            } else {
+                bottomUp = hi - lo >= G.vertexSize() / BOTTOM_UP_FACTOR;
+            }
+            if (bottomUp) {
+                _bottomUpParents.clear();
+                for (Graph<VLabel, ELabel>.Vertex current : live) {
+                    _bottomUpParents.add(current);
+                }
+                for (Graph<VLabel, ELabel>.Vertex w : G.vertices()) {
+                    if (_hops.get(w.id()) != 0) {
+                        continue;
+                    }
+                    for (int k = 0; k < G.inDegree(w); k += 1) {
+                        Graph<VLabel, ELabel>.Edge e = G.inEdge(w, k);
+                        Graph<VLabel, ELabel>.Vertex u = e.getV(w);
+                        if (!_bottomUpParents.contains(u)) {
+                            continue;
+                        }
+                        Control pre = onPreVisit(e, u);
+                        if (pre == Control.STOP) {
+                            _finalEdge = e;
+                            _finalVertex = w;
+                            return;
+                        } else if (pre == Control.SKIP) {
+                            continue;
+                        }
+                        _hops.lazySet(w.id(), mark);
+                        unexplored -= G.inDegree(w);
+                        _reached.add(w);
+                        break;
+                    }
+                }
+            } else {
+                for (Graph<VLabel, ELabel>.Vertex current : live) {
+                    for (int k = 0; k < G.outDegree(current); k += 1) {
+                        Graph<VLabel, ELabel>.Edge e = G.outEdge(current, k);
+                        Graph<VLabel, ELabel>.Vertex w = e.getV(current);
+                        if (_hops.get(w.id()) != 0) {
+                            continue;
+                        }
+                        Control pre = onPreVisit(e, current);
+                        if (pre == Control.STOP) {
+                            _finalEdge = e;
+                            _finalVertex = w;
+                            return;
+                        } else if (pre == Control.SKIP) {
+                            continue;
+                        }
+                        _hops.lazySet(w.id(), mark);
+                        unexplored -= G.inDegree(w);
+                        _reached.add(w);
+                    }
+                }
+            }
+            previous = hi - lo;
+            lo = hi;
+            hi = _reached.size();
+        }
+    }
+
+    /** Returns the number of edges on a shortest path from the starting
+     *  vertex of the last parallel or direction-optimizing breadth-first
+     *  traversal to V, or -1 if that traversal did not reach V.  Undefined
+     *  if the graph has been modified since. */
+    public int hops(Graph<VLabel, ELabel>.Vertex v) {
+        if (_hops == null || v.id() >= _hops.length()) {
+            return -1;
+        }
+        return _hops.get(v.id()) - 1;
+    }
+
+    /** Visit the vertices _LEVEL[LO .. HI-1] of a parallel breadth-first
+     *  traversal, claiming their unclaimed successors with the hop count
+     *  MARK - 1 and adding them to _NEXT. */
+    private void expand(int lo, int hi, int mark) {
+        ArrayList<Graph<VLabel, ELabel>.Vertex> found =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+        Graph<VLabel, ELabel> graph = _graph;
+        for (int i = lo; i < hi && !_halted; i += 1) {
+            Graph<VLabel, ELabel>.Vertex current = _level[i];
+            Control control = onVisit(current);
+            if (control == Control.STOP) {
+                halt(current, null);
+                break;
+            } else if (control == Control.SKIP) {
+                continue;
+            }
+            for (int k = 0; k < graph.outDegree(current); k += 1) {
+                Graph<VLabel, ELabel>.Edge e = graph.outEdge(current, k);
+                Graph<VLabel, ELabel>.Vertex w = e.getV(current);
+                if (_hops.get(w.id()) != 0) {
+                    continue;
+                }
+                Control pre = onPreVisit(e, current);
+                if (pre == Control.STOP) {
+                    halt(w, e);
+                    break;
+                } else if (pre == Control.SKIP) {
+                    continue;
+                }
+                if (_hops.compareAndSet(w.id(), 0, mark)) {
+                    found.add(w);
+                }
+            }
+        }
+        int start = _nextSize.getAndAdd(found.size());
+        for (int i = 0; i < found.size(); i += 1) {
+            _next[start + i] = found.get(i);
+        }
+    }
+
+    /** Record that a parallel traversal was stopped at vertex V (or edge E,
+     *  if non-null), unless it has already been stopped. */
+    private synchronized void halt(Graph<VLabel, ELabel>.Vertex v,
+                                   Graph<VLabel, ELabel>.Edge e) {
+        if (!_halted) {
+            _halted = true;
+            _finalVertex = v;
+            _finalEdge = e;
+        }
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex[] newVertexArray(int n) {
+        return (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** A task that expands part of one level of a parallel breadth-first
+     *  traversal, splitting itself while the part is large. */
+    private class Expander extends RecursiveAction {
+
+        /** A task that expands _LEVEL[LO .. HI-1], marking new vertices
+         *  with MARK. */
+        Expander(int lo, int hi, int mark) {
+            _lo = lo;
+            _hi = hi;
+            _mark = mark;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= PARALLEL_GRAIN) {
+                expand(_lo, _hi, _mark);
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new Expander(_lo, mid, _mark),
+                          new Expander(mid, _hi, _mark));
+            }
+        }
+
+        /** The range of _LEVEL to expand. */
+        private final int _lo, _hi;
+        /** The hop count plus one to give newly reached vertices. */
+        private final int _mark;
     }
 
     /** Continue the previous traversal starting from V.
      *  Continuing a traversal means that we do not traverse
      *  vertices or edges that have been traversed previously. */
     public void continueTraversing(Graph<VLabel, ELabel>.Vertex v) {
-        if (_traversalsearch) {
-            traverse(_graph, v, _comparer);
-        } else if (_depthsearch) {
-            depthFirstTraverse(_graph, v);
+        if (_kind == Kind.ORDERED) {
+            orderedTraverse(_graph, v, _ordered, false);
+        } else if (_kind == Kind.DEPTH) {
+            depthFirst(_graph, v, false);
+        } else if (_kind == Kind.BREADTH) {
+            breadthFirst(_graph, v, false);
         } else {
-            breadthFirstTraverse(_graph, v);
+            throw new IllegalStateException("no traversal to continue");
+        }
+    }
+
+    /** The fringe of a traversal in an order given by vertex labels.  A
+     *  vertex is held at most once. */
+    private abstract class OrderedFringe {
+        /** Returns true iff I am empty. */
+        abstract boolean isEmpty();
+
+        /** Returns true iff V is in me. */
+        abstract boolean contains(Graph<VLabel, ELabel>.Vertex v);
+
+        /** Add V, which is not in me, to me. */
+        abstract void add(Graph<VLabel, ELabel>.Vertex v);
+
+        /** Remove and return my first vertex. */
+        abstract Graph<VLabel, ELabel>.Vertex poll();
+
+        /** Remove all vertices from me. */
+        abstract void clear();
+    }
+
+    /** A fringe ordered by a Comparator on labels.  Since labels do not
+     *  change during a traversal, it need only remember which vertices it
+     *  holds, so that none is added twice. */
+    private class ComparedFringe extends OrderedFringe {
+
+        /** A fringe ordered by ORDER. */
+        ComparedFringe(final Comparator<VLabel> order) {
+            _order = order;
+            _queue = new PriorityQueue<Graph<VLabel, ELabel>.Vertex>(11,
+                new Comparator<Graph<VLabel, ELabel>.Vertex>() {
+                    @Override
+                    public int compare(Graph<VLabel, ELabel>.Vertex v0,
+                                       Graph<VLabel, ELabel>.Vertex v1) {
+                        return order.compare(v0.getLabel(), v1.getLabel());
+                    }
+                });
+        }
+
+        @Override
+        boolean isEmpty() {
+            return _queue.isEmpty();
         }
+
+        @Override
+        boolean contains(Graph<VLabel, ELabel>.Vertex v) {
+            return _members.contains(v);
+        }
+
+        @Override
+        void add(Graph<VLabel, ELabel>.Vertex v) {
+            _queue.add(v);
+            _members.add(v);
+        }
+
+        @Override
+        Graph<VLabel, ELabel>.Vertex poll() {
+            Graph<VLabel, ELabel>.Vertex v = _queue.poll();
+            _members.remove(v);
+            return v;
+        }
+
+        @Override
+        void clear() {
+            _queue.clear();
+            _members.clear();
+        }
+
+        /** The order on labels. */
+        private final Comparator<VLabel> _order;
+        /** My vertices in order. */
+        private final PriorityQueue<Graph<VLabel, ELabel>.Vertex> _queue;
+        /** The vertices in _QUEUE. */
+        private final BitVertexSet _members = new BitVertexSet();
     }
 
-    /** A comparator that compares vertices. */
-    private class Comparer implements
-        Comparator<Graph<VLabel, ELabel>.Vertex> {
+    /** A fringe ordered by a numeric key of labels, smallest first. */
+    private class KeyedFringe extends OrderedFringe {
 
-        /** Constructor that stores a Comparator<VLabel> COMPARATOR in
-         *  variable _COMPARATOR. */
-        public Comparer(Comparator<VLabel> comparator) {
-            _compare = comparator;
+        /** A fringe ordered by KEY. */
+        KeyedFringe(Weighting<? super VLabel> key) {
+            _key = key;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return _heap.isEmpty();
+        }
+
+        @Override
+        boolean contains(Graph<VLabel, ELabel>.Vertex v) {
+            return _heap.contains(v);
+        }
+
+        @Override
+        void add(Graph<VLabel, ELabel>.Vertex v) {
+            _heap.add(v, _key.weight(v.getLabel()));
+        }
+
+        @Override
+        Graph<VLabel, ELabel>.Vertex poll() {
+            return _heap.poll();
         }
 
         @Override
-        public int compare(Graph<VLabel, ELabel>.Vertex V0,
-                Graph<VLabel, ELabel>.Vertex V1) {
-            return _compare.compare(V0.getLabel(), V1.getLabel());
+        void clear() {
+            _heap.clear();
         }
 
-        /** Stores a Comparator<VLabel> that will compare vertices.*/
-        private Comparator<VLabel> _compare;
+        /** Gives the key of each label. */
+        private final Weighting<? super VLabel> _key;
+        /** My vertices in order. */
+        private final VertexHeap<VLabel, ELabel> _heap =
+            new VertexHeap<VLabel, ELabel>();
     }
 
     /** If the traversal ends prematurely, returns the Vertex argument to
@@ -331,6 +863,66 @@ public class Traversal<VLabel, ELabel> {
         return _graph;
     }
 
+    /** What a traversal should do after a call to onPreVisit, onVisit, or
+     *  onPostVisit. */
+    public enum Control {
+        /** Proceed as usual. */
+        CONTINUE,
+        /** From onPreVisit, do not traverse the edge; from onVisit, do
+         *  not add the vertex's successors to the fringe.  The same as
+         *  CONTINUE from onPostVisit. */
+        SKIP,
+        /** End the traversal. */
+        STOP
+    }
+
+    /** Method to be called when adding the node at the other end of E from
+     *  V0 to the fringe.  Returns STOP to end the traversal and SKIP to
+     *  leave E untraversed.  The default calls preVisit(E, V0), returning
+     *  STOP if it throws a StopException, SKIP if it throws a
+     *  RejectException, and otherwise CONTINUE. */
+    protected Control onPreVisit(Graph<VLabel, ELabel>.Edge e,
+                                 Graph<VLabel, ELabel>.Vertex v0) {
+        try {
+            preVisit(e, v0);
+        } catch (StopException stop) {
+            return Control.STOP;
+        } catch (RejectException reject) {
+            return Control.SKIP;
+        }
+        return Control.CONTINUE;
+    }
+
+    /** Method to be called when visiting vertex V.  Returns STOP to end the
+     *  traversal and SKIP to keep successors of V from being visited from
+     *  V.  The default calls visit(V), translating exceptions as for
+     *  onPreVisit. */
+    protected Control onVisit(Graph<VLabel, ELabel>.Vertex v) {
+        try {
+            visit(v);
+        } catch (StopException stop) {
+            return Control.STOP;
+        } catch (RejectException reject) {
+            return Control.SKIP;
+        }
+        return Control.CONTINUE;
+    }
+
+    /** Method to be called immediately after finishing the traversal of
+     *  successors of vertex V in pre- and post-order traversals.  Returns
+     *  STOP to end the traversal.  The default calls postVisit(V),
+     *  translating exceptions as for onPreVisit. */
+    protected Control onPostVisit(Graph<VLabel, ELabel>.Vertex v) {
+        try {
+            postVisit(v);
+        } catch (StopException stop) {
+            return Control.STOP;
+        } catch (RejectException reject) {
+            return Control.SKIP;
+        }
+        return Control.CONTINUE;
+    }
+
     /** Method to be called when adding the node at the other end of E from V0
      *  to the fringe. If this routine throws a StopException,
      *  the traversal ends.  If it throws a RejectException, the edge
@@ -361,34 +953,111 @@ public class Traversal<VLabel, ELabel> {
     /** The last graph traversed. */
     protected Graph<VLabel, ELabel> _graph;
 
-    /** Arraylist that keeps track of visited. */
-    private ArrayList<Graph<VLabel, ELabel>.Vertex> _visited = new
-            ArrayList<Graph<VLabel, ELabel>.Vertex>();
-
-    /** True if the last traversal is depth first. */
-    private boolean _depthsearch = false;
+    /** The vertices that have been visited.  This and the other vertex
+     *  sets below are kept for the life of this Traversal and cleared,
+     *  not reallocated, at the start of each new traversal. */
+    private BitVertexSet _visited = new BitVertexSet();
 
-    /** True if the last traversal done is breadth. */
-    private boolean _breadthsearch = false;
+    /** The kinds of traversal that may be continued. */
+    private enum Kind {
+        /** By depthFirstTraverse. */
+        DEPTH,
+        /** By breadthFirstTraverse. */
+        BREADTH,
+        /** By traverse. */
+        ORDERED
+    }
 
-    /** True if the last traversal done is traversal. */
-    private boolean _traversalsearch = false;
+    /** The kind of the last traversal that may be continued, or null if
+     *  there has been none. */
+    private Kind _kind;
 
-    /** A list used to keep track of vertices that have been previsited when
-     *  using breadthFirstTraverse. */
-    private ArrayList<Graph<VLabel, ELabel>.Vertex> _breadthpre = new
-            ArrayList<Graph<VLabel, ELabel>.Vertex>();
+    /** The vertices that have been added to the fringe when using
+     *  breadthFirstTraverse. */
+    private BitVertexSet _breadthpre = new BitVertexSet();
     /** A list used to keep track of when to postvisit when using
      *  breadthFirstTraverse. */
     private ArrayList<Graph<VLabel, ELabel>.Vertex> _breadthpost = new
             ArrayList<Graph<VLabel, ELabel>.Vertex>();
+    /** The members of _BREADTHPOST. */
+    private BitVertexSet _breadthposted = new BitVertexSet();
 
-    /** A list used to keep track of vertices that have been postvisited when
-     *  using depthFirstTraverse. */
-    private ArrayList<Graph<VLabel, ELabel>.Vertex> _depthpost = new
-            ArrayList<Graph<VLabel, ELabel>.Vertex>();
-    /** A Comparator<VLabel> that compares vertex labels in regular
-     *  traversals. */
-    private Comparator<VLabel> _comparer;
+    /** The vertices that have been postvisited when using
+     *  depthFirstTraverse. */
+    private BitVertexSet _depthpost = new BitVertexSet();
+    /** The stack of the last depth-first traversal. */
+    private Stack<Graph<VLabel, ELabel>.Vertex> _stack;
+    /** The fringe of the last breadth-first traversal. */
+    private LinkedList<Graph<VLabel, ELabel>.Vertex> _fringer;
+    /** The fringe of the last traversal by traverse, which gives the
+     *  order for continuing it. */
+    private OrderedFringe _ordered;
+    /** The fringes last used by traverse with a Comparator and with a
+     *  key, kept for reuse by traversals in the same order. */
+    private ComparedFringe _compared;
+    /** See _COMPARED. */
+    private KeyedFringe _keyed;
+
+    /** The limits set by setLimits, or -1 for none. */
+    private int _maxDepth = -1, _maxVisits = -1;
+    /** The time limit set by setLimits, or -1 for none. */
+    private long _maxNanos = -1;
+    /** The System.nanoTime at which the current traversal must end, if it
+     *  has a time limit. */
+    private long _deadline;
+    /** The number of vertices visited by the current traversal. */
+    private int _visits;
+    /** True iff the last traversal reached its visit or time limit. */
+    private boolean _limited;
+    /** The number of edges by which the current traversal reached each
+     *  vertex in its fringe, kept only if there is a depth limit. */
+    private IntVertexMap _depth = new IntVertexMap(0, 0);
+    /** The vertices the current traversal has found beyond its depth
+     *  limit. */
+    private ArrayList<Graph<VLabel, ELabel>.Vertex> _beyond =
+        new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+    /** The frontier of the traversal the current one continues. */
+    private List<Graph<VLabel, ELabel>.Vertex> _carried =
+        Collections.emptyList();
+    /** The frontier of the last traversal, or null if not yet found. */
+    private ArrayList<Graph<VLabel, ELabel>.Vertex> _frontier;
+    /** The members of _FRONTIER. */
+    private BitVertexSet _listed = new BitVertexSet();
+
+    /** A direction-optimizing traversal switches to bottom-up when the
+     *  current level is larger than the last and the edges out of it
+     *  exceed 1/TOP_DOWN_FACTOR of those into untraversed vertices. */
+    private static final int TOP_DOWN_FACTOR = 14;
+    /** A direction-optimizing traversal switches back to top-down when the
+     *  current level holds fewer than 1/BOTTOM_UP_FACTOR of the vertices. */
+    private static final int BOTTOM_UP_FACTOR = 24;
+
+    /** Largest part of a level that one task of a parallel breadth-first
+     *  traversal expands without splitting. */
+    private static final int PARALLEL_GRAIN = 256;
+
+    /** For the last parallel or direction-optimizing breadth-first
+     *  traversal, one more than the hop count of each vertex reached,
+     *  indexed by id, or 0 if it has not been reached.  Setting an entry
+     *  from 0 claims its vertex for the next level. */
+    private AtomicIntegerArray _hops;
+    /** True iff _REACHED holds every vertex with a nonzero entry in _HOPS,
+     *  so that _HOPS can be reused by clearing just those entries. */
+    private boolean _hopsListed;
+    /** The vertices reached by the last direction-optimizing traversal,
+     *  in order of level; each level is a contiguous run. */
+    private final ArrayList<Graph<VLabel, ELabel>.Vertex> _reached =
+        new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+    /** The live vertices of the current level of a bottom-up step. */
+    private final BitVertexSet _bottomUpParents = new BitVertexSet();
+    /** The level being expanded by a parallel breadth-first traversal. */
+    private Graph<VLabel, ELabel>.Vertex[] _level;
+    /** The next level of a parallel breadth-first traversal, filled in
+     *  positions 0 .. _NEXTSIZE-1. */
+    private Graph<VLabel, ELabel>.Vertex[] _next;
+    /** The number of vertices so far in _NEXT. */
+    private AtomicInteger _nextSize;
+    /** True once a parallel traversal has been stopped. */
+    private volatile boolean _halted;
 }
 
@@ -0,0 +1,173 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/** Lazy views of the vertices of a graph in the orders in which the
+ *  traversals of Traversal visit them.  Each view finds the next vertex
+ *  only when asked for it, so a client that wants only the first few
+ *  vertices, or the first one satisfying some condition, does only as
+ *  much of the traversal as it needs and may simply stop iterating.  The
+ *  graph must not be modified while a view of it is in use.
+ *  @author Scott Lee
+ */
+public final class TraversalOrder {
+
+    /** Returns the vertices of G reachable from V, in the order in which
+     *  Traversal.depthFirstTraverse(G, V) visits them. */
+    public static <VLabel, ELabel> Iteration<Graph<VLabel, ELabel>.Vertex>
+    depthFirst(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v) {
+        Queue<Graph<VLabel, ELabel>.Vertex> stack =
+            Collections.asLifoQueue(
+                new ArrayDeque<Graph<VLabel, ELabel>.Vertex>());
+        return new Walk<VLabel, ELabel>(G, v, stack, false);
+    }
+
+    /** Returns the vertices of G reachable from V, in the order in which
+     *  Traversal.breadthFirstTraverse(G, V) visits them. */
+    public static <VLabel, ELabel> Iteration<Graph<VLabel, ELabel>.Vertex>
+    breadthFirst(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v) {
+        return new Walk<VLabel, ELabel>(G, v,
+            new ArrayDeque<Graph<VLabel, ELabel>.Vertex>(), true);
+    }
+
+    /** Returns the vertices of G reachable from V, visiting next at each
+     *  step the vertex whose label is least according to ORDER among the
+     *  unvisited successors of those visited so far, as
+     *  Traversal.traverse(G, V, ORDER) intends. */
+    public static <VLabel, ELabel> Iteration<Graph<VLabel, ELabel>.Vertex>
+    ordered(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v,
+            final Comparator<? super VLabel> order) {
+        Queue<Graph<VLabel, ELabel>.Vertex> fringe =
+            new PriorityQueue<Graph<VLabel, ELabel>.Vertex>(11,
+                new Comparator<Graph<VLabel, ELabel>.Vertex>() {
+                    @Override
+                    public int compare(Graph<VLabel, ELabel>.Vertex v0,
+                                       Graph<VLabel, ELabel>.Vertex v1) {
+                        return order.compare(v0.getLabel(), v1.getLabel());
+                    }
+                });
+        return new Walk<VLabel, ELabel>(G, v, fringe, true);
+    }
+
+    /** Returns depthFirst(G, V) as a sequential stream. */
+    public static <VLabel, ELabel> Stream<Graph<VLabel, ELabel>.Vertex>
+    depthFirstStream(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex v) {
+        return stream(depthFirst(G, v));
+    }
+
+    /** Returns breadthFirst(G, V) as a sequential stream. */
+    public static <VLabel, ELabel> Stream<Graph<VLabel, ELabel>.Vertex>
+    breadthFirstStream(Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex v) {
+        return stream(breadthFirst(G, v));
+    }
+
+    /** Returns ordered(G, V, ORDER) as a sequential stream. */
+    public static <VLabel, ELabel> Stream<Graph<VLabel, ELabel>.Vertex>
+    orderedStream(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v,
+                  Comparator<? super VLabel> order) {
+        return stream(ordered(G, v, order));
+    }
+
+    /** Returns the items of ITER, each distinct, as a sequential stream. */
+    private static <Type> Stream<Type> stream(Iteration<Type> iter) {
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iter, Spliterator.ORDERED
+                                                | Spliterator.DISTINCT
+                                                | Spliterator.NONNULL),
+            false);
+    }
+
+    /** An iteration over the vertices reached by a traversal whose fringe
+     *  is a given queue. */
+    static class Walk<VLabel, ELabel>
+        extends Iteration<Graph<VLabel, ELabel>.Vertex> {
+
+        /** The vertices of G reachable from V, in the order they leave
+         *  FRINGE.  If MARKONADD, a vertex is added to FRINGE only once,
+         *  which is correct if FRINGE is first-in, first-out or orders
+         *  vertices by labels that do not change during the walk, since
+         *  then when a vertex leaves does not depend on when it was added.
+         *  Otherwise (as for a stack), it may be added once for each
+         *  visited predecessor, and is returned only when it first
+         *  leaves. */
+        Walk(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v,
+             Queue<Graph<VLabel, ELabel>.Vertex> fringe, boolean markOnAdd) {
+            _G = G;
+            _fringe = fringe;
+            _markOnAdd = markOnAdd;
+            _seen = new BitVertexSet(G);
+            if (markOnAdd) {
+                _seen.add(v);
+            }
+            fringe.add(v);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (_last != null) {
+                expand(_last);
+                _last = null;
+            }
+            while (_next == null && !_fringe.isEmpty()) {
+                Graph<VLabel, ELabel>.Vertex v = _fringe.poll();
+                if (_markOnAdd || _seen.add(v)) {
+                    _next = v;
+                }
+            }
+            return _next != null;
+        }
+
+        @Override
+        public Graph<VLabel, ELabel>.Vertex next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _last = _next;
+            _next = null;
+            return _last;
+        }
+
+        /** Returns the number of entries in my fringe. */
+        int fringeSize() {
+            return _fringe.size();
+        }
+
+        /** Add the unvisited successors of V to the fringe. */
+        private void expand(Graph<VLabel, ELabel>.Vertex v) {
+            int degree = _G.outDegree(v);
+            for (int k = 0; k < degree; k += 1) {
+                Graph<VLabel, ELabel>.Vertex w = _G.outEdge(v, k).getV(v);
+                if (_markOnAdd ? _seen.add(w) : !_seen.contains(w)) {
+                    _fringe.add(w);
+                }
+            }
+        }
+
+        /** The graph traversed. */
+        private final Graph<VLabel, ELabel> _G;
+        /** Vertices waiting to be returned. */
+        private final Queue<Graph<VLabel, ELabel>.Vertex> _fringe;
+        /** True iff vertices are marked as seen when added to the
+         *  fringe, rather than when they leave it. */
+        private final boolean _markOnAdd;
+        /** The vertices seen so far. */
+        private final BitVertexSet _seen;
+        /** The next vertex to return, or null if not yet found. */
+        private Graph<VLabel, ELabel>.Vertex _next;
+        /** The vertex last returned, if its successors have not yet been
+         *  added to the fringe, or null. */
+        private Graph<VLabel, ELabel>.Vertex _last;
+    }
+
+}
@@ -0,0 +1,179 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** A priority queue of vertices with double keys, smallest key first,
+ *  that holds each vertex at most once.  The queue is indexed by vertex
+ *  id (see Graph.Vertex.id()), so that finding a vertex, changing its
+ *  key, and testing membership take O(1) time in addition to the
+ *  O(lg N) cost of restoring heap order.  A heap should only hold vertices
+ *  of one graph.
+ *  @author Scott Lee
+ */
+public class VertexHeap<VLabel, ELabel> {
+
+    /** An empty heap. */
+    public VertexHeap() {
+        this(0);
+    }
+
+    /** An empty heap with room for vertices with ids less than N. */
+    @SuppressWarnings("unchecked")
+    public VertexHeap(int n) {
+        _heap = (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+        _keys = new double[n];
+        _where = new int[n];
+    }
+
+    /** An empty heap with room for all vertices of G. */
+    public VertexHeap(Graph<VLabel, ELabel> g) {
+        this(g.vertexIdBound());
+    }
+
+    /** Returns the number of vertices in me. */
+    public int size() {
+        return _size;
+    }
+
+    /** Returns true iff I am empty. */
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /** Returns true iff V is in me. */
+    public boolean contains(Graph<VLabel, ELabel>.Vertex v) {
+        return v.id() < _where.length && _where[v.id()] != 0;
+    }
+
+    /** Returns the key of V, which must be in me. */
+    public double key(Graph<VLabel, ELabel>.Vertex v) {
+        if (!contains(v)) {
+            throw new NoSuchElementException("vertex not in heap");
+        }
+        return _keys[_where[v.id()] - 1];
+    }
+
+    /** Add V to me with key KEY or, if V is already present, change its
+     *  key to KEY. */
+    public void add(Graph<VLabel, ELabel>.Vertex v, double key) {
+        int id = v.id();
+        if (id >= _where.length) {
+            _where = Arrays.copyOf(_where, Math.max(id + 1,
+                                                    2 * _where.length));
+        }
+        int k = _where[id] - 1;
+        if (k < 0) {
+            if (_size == _heap.length) {
+                int n = Math.max(_size + 1, 2 * _size);
+                _heap = Arrays.copyOf(_heap, n);
+                _keys = Arrays.copyOf(_keys, n);
+            }
+            k = _size;
+            _size += 1;
+            _heap[k] = v;
+            _keys[k] = key;
+            _where[id] = k + 1;
+            siftUp(k);
+        } else if (key < _keys[k]) {
+            _keys[k] = key;
+            siftUp(k);
+        } else {
+            _keys[k] = key;
+            siftDown(k);
+        }
+    }
+
+    /** Returns the vertex in me with the smallest key. */
+    public Graph<VLabel, ELabel>.Vertex peek() {
+        if (_size == 0) {
+            throw new NoSuchElementException("heap is empty");
+        }
+        return _heap[0];
+    }
+
+    /** Returns the smallest key in me. */
+    public double peekKey() {
+        if (_size == 0) {
+            throw new NoSuchElementException("heap is empty");
+        }
+        return _keys[0];
+    }
+
+    /** Remove and return the vertex in me with the smallest key. */
+    public Graph<VLabel, ELabel>.Vertex poll() {
+        Graph<VLabel, ELabel>.Vertex result = peek();
+        _where[result.id()] = 0;
+        _size -= 1;
+        if (_size > 0) {
+            move(_heap[_size], _keys[_size], 0);
+            siftDown(0);
+        }
+        _heap[_size] = null;
+        return result;
+    }
+
+    /** Remove all vertices from me, keeping my storage. */
+    public void clear() {
+        for (int k = 0; k < _size; k += 1) {
+            _where[_heap[k].id()] = 0;
+            _heap[k] = null;
+        }
+        _size = 0;
+    }
+
+    /** Move the item at position K toward the root until it is no smaller
+     *  than its parent. */
+    private void siftUp(int k) {
+        Graph<VLabel, ELabel>.Vertex v = _heap[k];
+        double key = _keys[k];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (_keys[parent] <= key) {
+                break;
+            }
+            move(_heap[parent], _keys[parent], k);
+            k = parent;
+        }
+        move(v, key, k);
+    }
+
+    /** Move the item at position K toward the leaves until it is no larger
+     *  than its children. */
+    private void siftDown(int k) {
+        Graph<VLabel, ELabel>.Vertex v = _heap[k];
+        double key = _keys[k];
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= _size) {
+                break;
+            }
+            if (child + 1 < _size && _keys[child + 1] < _keys[child]) {
+                child += 1;
+            }
+            if (key <= _keys[child]) {
+                break;
+            }
+            move(_heap[child], _keys[child], k);
+            k = child;
+        }
+        move(v, key, k);
+    }
+
+    /** Place V with key KEY at position K. */
+    private void move(Graph<VLabel, ELabel>.Vertex v, double key, int k) {
+        _heap[k] = v;
+        _keys[k] = key;
+        _where[v.id()] = k + 1;
+    }
+
+    /** The heap-ordered vertices, in _HEAP[0 .. _SIZE-1]. */
+    private Graph<VLabel, ELabel>.Vertex[] _heap;
+    /** _KEYS[K] is the key of _HEAP[K]. */
+    private double[] _keys;
+    /** Maps vertex ids to 1 + their positions in _HEAP, or to 0 for
+     *  vertices not in me. */
+    private int[] _where;
+    /** Number of vertices in me. */
+    private int _size;
+}
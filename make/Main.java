@@ -4,11 +4,10 @@ import java.util.ArrayList;
 import java.io.IOException;
 import java.io.File;
 import graph.Graph;
-import graph.Iteration;
 import graph.DirectedGraph;
 import java.util.Iterator;
+import graph.StrongComponents;
 import graph.Traversal;
-import graph.RejectException;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Scanner;
@@ -327,28 +326,6 @@ public final class Main {
 
     }
 
-    /** A class that checks for cyclic makes. */
-    public static class Cycle<VLabel, ELabel> extends
-        Traversal<VLabel, ELabel> {
-
-        /** Constructor takes in V. */
-        Cycle(Graph<VLabel, ELabel>.Vertex v) {
-            _v = v;
-        }
-
-        @Override
-        protected void visit(Graph<VLabel, ELabel>.Vertex v) {
-            if (v == _v) {
-                System.err.println("There exists a cycle.");
-                System.exit(1);
-            }
-        }
-
-        /** A field that has the Vertex. */
-        protected Graph<VLabel, ELabel>.Vertex _v;
-
-    }
-
     /** A class that traverses the graph of targets and executes
      *  their commands. */
     public static class Traverse<VLabel, ELabel> extends
@@ -360,13 +337,13 @@ public final class Main {
             HashMap<String, Integer> map, ArrayList<Graph<VLabel,
             ELabel>.Vertex> list) {
             super();
-            _G = graph;
+            _components = new StrongComponents<VLabel, ELabel>(graph);
             _rules = rules;
             _files = map;
             _list = list;
         }
         @Override
-        protected void postVisit(Graph<VLabel, ELabel>.Vertex v) {
+        protected Control onPostVisit(Graph<VLabel, ELabel>.Vertex v) {
             Iterator<Rule> iter = _rules.iterator();
             ArrayList<String> commands = new ArrayList<String>();
             while (iter.hasNext()) {
@@ -391,27 +368,23 @@ public final class Main {
             for (int x = 0; x < commands.size(); x++) {
                 System.out.println(commands.get(x));
             }
+            return Control.CONTINUE;
         }
 
         @Override
-        protected void visit(Graph<VLabel, ELabel>.Vertex v) {
-            try {
-                Cycle<VLabel, ELabel> cycling = new Cycle<VLabel, ELabel>(v);
-                Iteration<Graph<VLabel, ELabel>.Vertex> iter = _G.successors(v);
-                if (_list.contains(v)) {
-                    throw new RejectException();
-                }
-                while (iter.hasNext()) {
-                    Graph<VLabel, ELabel>.Vertex vertex = iter.next();
-                    cycling.depthFirstTraverse(_G, vertex);
-                }
-            } catch (NullPointerException x) {
-                System.out.println("");
+        protected Control onVisit(Graph<VLabel, ELabel>.Vertex v) {
+            if (_list.contains(v)) {
+                return Control.SKIP;
+            }
+            if (_components.isCyclic(v)) {
+                System.err.println("There exists a cycle.");
+                System.exit(1);
             }
+            return Control.CONTINUE;
         }
 
-        /** The Graph. */
-        private Graph<VLabel, ELabel> _G;
+        /** The strongly connected components of _G, for finding cycles. */
+        private StrongComponents<VLabel, ELabel> _components;
         /** A field to contain the Rules in Make. */
         private ArrayList<Rule> _rules;
         /** A field to hold the files and their times. */
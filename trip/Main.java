@@ -181,6 +181,7 @@ public final class Main {
     private static void trip(String mapFileName) {
         _places = new HashMap<String, Graph<Place, Road>.Vertex>();
         mapFile(mapFileName);
+        tripgraph = tripgraph.freeze();
         Scanner requests = new Scanner(System.in);
         while (requests.hasNextLine()) {
             String request = requests.nextLine();